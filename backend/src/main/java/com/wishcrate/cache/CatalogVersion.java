@@ -0,0 +1,78 @@
+package com.wishcrate.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.wishcrate.event.CategoryChangedEvent;
+import com.wishcrate.event.ProductChangedEvent;
+
+/**
+ * Version counters behind the catalog ETags. Product and category changes each bump a counter,
+ * and every changed product also records the version it changed at in a fixed table of stripes,
+ * so one product's edit doesn't invalidate every other product's detail page. Products sharing a
+ * stripe share its version, which only costs an occasional full response. The startup time is
+ * part of every tag because the counters restart from zero.
+ */
+@Component
+public class CatalogVersion {
+    
+    private static final int STRIPE_BITS = 12;
+    
+    private final long epoch = System.currentTimeMillis();
+    private final AtomicLong productVersion = new AtomicLong();
+    private final AtomicLong categoryVersion = new AtomicLong();
+    private final AtomicLongArray productVersions = new AtomicLongArray(1 << STRIPE_BITS);
+    
+    /**
+     * Tag for responses built from any products and categories, such as listings and search.
+     */
+    public String catalogEtag() {
+        return "\"c" + epoch + "-" + productVersion.get() + "-" + categoryVersion.get() + "\"";
+    }
+    
+    /**
+     * Tag for a single product's detail response, which also embeds its category name.
+     */
+    public String productEtag(Long productId) {
+        return "\"p" + epoch + "-" + productId + "-" + productVersions.get(stripe(productId))
+                + "-" + categoryVersion.get() + "\"";
+    }
+    
+    public String categoryEtag() {
+        return "\"k" + epoch + "-" + categoryVersion.get() + "\"";
+    }
+    
+    /**
+     * Called once the catalog indexes have finished loading. Listings and search answered before
+     * then came from database fallbacks, so their tag must not carry over.
+     */
+    public void catalogLoaded() {
+        productVersion.incrementAndGet();
+    }
+    
+    // Runs after the caches and indexes have applied the change, so a new tag is never paired
+    // with content read before the change
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        long version = productVersion.incrementAndGet();
+        for (Long productId : event.getProductIds()) {
+            productVersions.accumulateAndGet(stripe(productId), version, Math::max);
+        }
+    }
+    
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        categoryVersion.incrementAndGet();
+    }
+    
+    private static int stripe(Long productId) {
+        return (int) (productId * 0x9E3779B97F4A7C15L >>> (64 - STRIPE_BITS));
+    }
+}
@@ -0,0 +1,144 @@
+package com.wishcrate.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.wishcrate.dto.CategoryNodeView;
+import com.wishcrate.event.CategoryChangedEvent;
+import com.wishcrate.repository.CategoryRepository;
+
+/**
+ * In-memory closure of the category tree: for every category, all of its descendants and its
+ * chain of ancestors. The category table is small and rarely written, so the closure is rebuilt
+ * from scratch on every change and swapped in as one immutable snapshot.
+ */
+@Component
+public class CategoryHierarchy implements SmartInitializingSingleton {
+    
+    private static final Logger log = LoggerFactory.getLogger(CategoryHierarchy.class);
+    
+    private final CategoryRepository categoryRepository;
+    
+    private volatile Closure closure = new Closure(Map.of(), Map.of(), Map.of(), Map.of());
+    
+    public CategoryHierarchy(CategoryRepository categoryRepository) {
+        this.categoryRepository = categoryRepository;
+    }
+    
+    @Override
+    public void afterSingletonsInstantiated() {
+        reload();
+    }
+    
+    // Runs before other listeners so anything reacting to the same change sees the new tree
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        reload();
+    }
+    
+    /**
+     * The category and all categories below it. Unknown ids map to themselves, so a query
+     * for a category that doesn't exist still finds nothing rather than everything.
+     */
+    public Set<Long> descendantsOf(Long categoryId) {
+        return closure.descendants.getOrDefault(categoryId, Set.of(categoryId));
+    }
+    
+    public Set<Long> descendantsOf(Collection<Long> categoryIds) {
+        if (categoryIds.size() == 1) {
+            return descendantsOf(categoryIds.iterator().next());
+        }
+        Set<Long> all = new LinkedHashSet<>();
+        for (Long categoryId : categoryIds) {
+            all.addAll(descendantsOf(categoryId));
+        }
+        return all;
+    }
+    
+    /**
+     * The category followed by its parent, grandparent and so on up to the root.
+     */
+    public List<Long> ancestorsOf(Long categoryId) {
+        return closure.ancestors.getOrDefault(categoryId, List.of(categoryId));
+    }
+    
+    public boolean isDescendant(Long categoryId, Long ancestorId) {
+        return categoryId != null && ancestorsOf(categoryId).contains(ancestorId);
+    }
+    
+    public List<Long> childrenOf(Long categoryId) {
+        return closure.children.getOrDefault(categoryId, List.of());
+    }
+    
+    public String nameOf(Long categoryId) {
+        return closure.names.get(categoryId);
+    }
+    
+    private void reload() {
+        List<CategoryNodeView> nodes = categoryRepository.findAllNodes();
+        Map<Long, Long> parents = new HashMap<>();
+        Map<Long, String> names = new HashMap<>();
+        for (CategoryNodeView node : nodes) {
+            parents.put(node.getId(), node.getParentId());
+            if (node.getName() != null) {
+                names.put(node.getId(), node.getName());
+            }
+        }
+        
+        Map<Long, List<Long>> ancestors = new HashMap<>();
+        Map<Long, Set<Long>> descendants = new HashMap<>();
+        Map<Long, List<Long>> children = new HashMap<>();
+        for (CategoryNodeView node : nodes) {
+            List<Long> chain = new ArrayList<>();
+            Set<Long> seen = new HashSet<>();
+            // A parent loop in the data stops the walk instead of spinning forever
+            for (Long id = node.getId(); id != null && seen.add(id); id = parents.get(id)) {
+                chain.add(id);
+                descendants.computeIfAbsent(id, key -> new LinkedHashSet<>()).add(node.getId());
+            }
+            ancestors.put(node.getId(), Collections.unmodifiableList(chain));
+            if (node.getParentId() != null) {
+                children.computeIfAbsent(node.getParentId(), key -> new ArrayList<>()).add(node.getId());
+            }
+        }
+        descendants.replaceAll((id, set) -> Collections.unmodifiableSet(set));
+        children.replaceAll((id, list) -> Collections.unmodifiableList(list));
+        
+        closure = new Closure(ancestors, descendants, children, names);
+        log.debug("Loaded category hierarchy with {} categories", nodes.size());
+    }
+    
+    private static final class Closure {
+        private final Map<Long, List<Long>> ancestors;
+        private final Map<Long, Set<Long>> descendants;
+        private final Map<Long, List<Long>> children;
+        private final Map<Long, String> names;
+        
+        private Closure(Map<Long, List<Long>> ancestors, Map<Long, Set<Long>> descendants,
+                        Map<Long, List<Long>> children, Map<Long, String> names) {
+            this.ancestors = ancestors;
+            this.descendants = descendants;
+            this.children = children;
+            this.names = names;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.wishcrate.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.DigestUtils;
+
+import com.wishcrate.dto.CategoryBreadcrumbDTO;
+import com.wishcrate.dto.CategoryNodeView;
+import com.wishcrate.dto.CategoryTreeDTO;
+import com.wishcrate.dto.ProductIndexView;
+import com.wishcrate.event.CategoryChangedEvent;
+import com.wishcrate.repository.CategoryRepository;
+import com.wishcrate.search.ProductIndex;
+
+/**
+ * The whole category tree with product counts and breadcrumbs, built into an immutable
+ * structure and shared by every request. Category rows are only re-read when a category
+ * changes; product counts are maintained from the catalog feed, and either kind of change
+ * just marks the tree for a rebuild on its next read.
+ */
+@Component
+public class CategoryTree implements ProductIndex {
+    
+    private static final Comparator<CategoryNodeView> BY_NAME = Comparator.comparing(
+            CategoryNodeView::getName, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
+    
+    private final CategoryRepository categoryRepository;
+    
+    private final Object lock = new Object();
+    private final Map<Long, Long> productCategories = new HashMap<>();
+    private final Map<Long, Long> productCounts = new HashMap<>();
+    private List<CategoryNodeView> nodes;
+    private volatile long modifications;
+    private volatile Snapshot snapshot;
+    
+    public CategoryTree(CategoryRepository categoryRepository) {
+        this.categoryRepository = categoryRepository;
+    }
+    
+    public List<CategoryTreeDTO> getRoots() {
+        return current().roots;
+    }
+    
+    /**
+     * A strong entity tag for the tree {@link #getRoots()} currently returns.
+     */
+    public String getEtag() {
+        return current().etag;
+    }
+    
+    @Override
+    public void index(ProductIndexView product) {
+        synchronized (lock) {
+            Long previous = productCategories.put(product.getId(), product.getCategoryId());
+            if (previous == null || !previous.equals(product.getCategoryId())) {
+                adjust(previous, -1);
+                adjust(product.getCategoryId(), 1);
+                modifications++;
+            }
+        }
+    }
+    
+    @Override
+    public void remove(Long productId) {
+        synchronized (lock) {
+            if (productCategories.containsKey(productId)) {
+                adjust(productCategories.remove(productId), -1);
+                modifications++;
+            }
+        }
+    }
+    
+    @Override
+    public void onLoaded() {
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        synchronized (lock) {
+            nodes = null;
+            modifications++;
+        }
+    }
+    
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current != null && current.version == modifications) {
+            return current;
+        }
+        synchronized (lock) {
+            if (snapshot == null || snapshot.version != modifications) {
+                snapshot = build();
+            }
+            return snapshot;
+        }
+    }
+    
+    // Caller holds the lock
+    private Snapshot build() {
+        if (nodes == null) {
+            nodes = categoryRepository.findAllNodes();
+        }
+        Map<Long, List<CategoryNodeView>> children = new HashMap<>();
+        List<CategoryNodeView> roots = new ArrayList<>();
+        Map<Long, CategoryNodeView> byId = new HashMap<>();
+        for (CategoryNodeView node : nodes) {
+            byId.put(node.getId(), node);
+        }
+        for (CategoryNodeView node : nodes) {
+            if (node.getParentId() == null || !byId.containsKey(node.getParentId())) {
+                roots.add(node);
+            } else {
+                children.computeIfAbsent(node.getParentId(), id -> new ArrayList<>()).add(node);
+            }
+        }
+        
+        List<CategoryTreeDTO> tree = buildLevel(roots, children, new ArrayList<>());
+        StringBuilder fingerprint = new StringBuilder();
+        appendFingerprint(tree, fingerprint);
+        String etag = "\"" + DigestUtils.md5DigestAsHex(fingerprint.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+        return new Snapshot(modifications, List.copyOf(tree), etag);
+    }
+    
+    private List<CategoryTreeDTO> buildLevel(List<CategoryNodeView> level, Map<Long, List<CategoryNodeView>> children,
+                                             List<CategoryBreadcrumbDTO> parentPath) {
+        level.sort(BY_NAME);
+        List<CategoryTreeDTO> built = new ArrayList<>(level.size());
+        for (CategoryNodeView node : level) {
+            List<CategoryBreadcrumbDTO> path = new ArrayList<>(parentPath);
+            path.add(new CategoryBreadcrumbDTO(node.getId(), node.getName()));
+            List<CategoryTreeDTO> subtree = buildLevel(children.getOrDefault(node.getId(), new ArrayList<>()),
+                    children, path);
+            long own = productCounts.getOrDefault(node.getId(), 0L);
+            long total = own;
+            for (CategoryTreeDTO child : subtree) {
+                total += child.getTotalProductCount();
+            }
+            built.add(new CategoryTreeDTO(node.getId(), node.getName(), node.getImageUrl(), own, total,
+                    List.copyOf(path), subtree));
+        }
+        return built;
+    }
+    
+    private static void appendFingerprint(List<CategoryTreeDTO> level, StringBuilder into) {
+        into.append('[');
+        for (CategoryTreeDTO node : level) {
+            into.append(node.getId()).append(':').append(node.getName()).append(':').append(node.getImageUrl())
+                    .append(':').append(node.getProductCount()).append(':').append(node.getTotalProductCount());
+            appendFingerprint(node.getChildren(), into);
+        }
+        into.append(']');
+    }
+    
+    private void adjust(Long categoryId, long delta) {
+        if (categoryId != null) {
+            productCounts.merge(categoryId, delta, Long::sum);
+        }
+    }
+    
+    private static final class Snapshot {
+        private final long version;
+        private final List<CategoryTreeDTO> roots;
+        private final String etag;
+        
+        private Snapshot(long version, List<CategoryTreeDTO> roots, String etag) {
+            this.version = version;
+            this.roots = roots;
+            this.etag = etag;
+        }
+    }
+}
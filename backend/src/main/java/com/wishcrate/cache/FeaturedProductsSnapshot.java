@@ -0,0 +1,177 @@
+package com.wishcrate.cache;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.DigestUtils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wishcrate.dto.ProductIndexView;
+import com.wishcrate.dto.ProductListingDTO;
+import com.wishcrate.event.CategoryChangedEvent;
+import com.wishcrate.repository.ProductRepository;
+import com.wishcrate.search.ProductIndex;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Holds the featured-products response as pre-serialized JSON. Changes to featured products
+ * (or products entering/leaving the featured set) trigger a coalesced background rebuild
+ * that swaps in a new immutable snapshot, so readers never block or see a partial list.
+ */
+@Component
+public class FeaturedProductsSnapshot implements ProductIndex {
+    
+    private static final Logger log = LoggerFactory.getLogger(FeaturedProductsSnapshot.class);
+    
+    private final ProductRepository productRepository;
+    private final ObjectMapper objectMapper;
+    
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    private final ExecutorService rebuilder = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "featured-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private volatile boolean loaded;
+    
+    public FeaturedProductsSnapshot(ProductRepository productRepository, ObjectMapper objectMapper) {
+        this.productRepository = productRepository;
+        this.objectMapper = objectMapper;
+    }
+    
+    /**
+     * The featured list as UTF-8 JSON.
+     */
+    public byte[] getJson() {
+        return snapshot().json;
+    }
+    
+    /**
+     * A strong entity tag derived from the bytes {@link #getJson()} currently returns.
+     */
+    public String getEtag() {
+        return snapshot().etag;
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        // Listings embed the category name
+        if (loaded) {
+            scheduleRebuild();
+        }
+    }
+    
+    @Override
+    public void index(ProductIndexView product) {
+        if (loaded && (product.isFeatured() || isInSnapshot(product.getId()))) {
+            scheduleRebuild();
+        }
+    }
+    
+    @Override
+    public void remove(Long productId) {
+        if (loaded && isInSnapshot(productId)) {
+            scheduleRebuild();
+        }
+    }
+    
+    @Override
+    public void onLoaded() {
+        loaded = true;
+        scheduleRebuild();
+    }
+    
+    private Snapshot snapshot() {
+        Snapshot snapshot = current.get();
+        if (snapshot == null) {
+            // Only before the first build completes. It runs on the rebuild thread like every
+            // other build, so builds never overlap and an older list can't replace a newer one.
+            snapshot = awaitFirstBuild();
+        }
+        return snapshot;
+    }
+    
+    private Snapshot awaitFirstBuild() {
+        Future<Snapshot> build = rebuilder.submit(() -> {
+            Snapshot built = current.get();
+            return built != null ? built : rebuild();
+        });
+        try {
+            return build.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while building featured products snapshot", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException("Failed to build featured products snapshot", e.getCause());
+        }
+    }
+    
+    private boolean isInSnapshot(Long productId) {
+        Snapshot snapshot = current.get();
+        return snapshot == null || snapshot.productIds.contains(productId);
+    }
+    
+    private void scheduleRebuild() {
+        // Any number of changes before the task starts collapse into one rebuild
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            rebuilder.execute(() -> {
+                rebuildScheduled.set(false);
+                try {
+                    rebuild();
+                } catch (RuntimeException e) {
+                    log.warn("Failed to rebuild featured products snapshot", e);
+                }
+            });
+        }
+    }
+    
+    // Only ever runs on the rebuild thread
+    private Snapshot rebuild() {
+        List<ProductListingDTO> products = productRepository.findFeaturedListings();
+        Set<Long> productIds = products.stream()
+                .map(ProductListingDTO::getId)
+                .collect(Collectors.toUnmodifiableSet());
+        try {
+            Snapshot snapshot = new Snapshot(objectMapper.writeValueAsBytes(products), productIds);
+            current.set(snapshot);
+            return snapshot;
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize featured products", e);
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        rebuilder.shutdownNow();
+    }
+    
+    private static final class Snapshot {
+        private final byte[] json;
+        private final String etag;
+        private final Set<Long> productIds;
+        
+        private Snapshot(byte[] json, Set<Long> productIds) {
+            this.json = json;
+            this.etag = "\"" + DigestUtils.md5DigestAsHex(json) + "\"";
+            this.productIds = productIds;
+        }
+    }
+}
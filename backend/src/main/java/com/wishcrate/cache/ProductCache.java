@@ -0,0 +1,145 @@
+package com.wishcrate.cache;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.wishcrate.dto.CacheStatsDTO;
+import com.wishcrate.dto.ProductDTO;
+import com.wishcrate.event.CategoryChangedEvent;
+import com.wishcrate.event.ProductChangedEvent;
+
+/**
+ * Bounded LRU cache of fully built {@link ProductDTO}s with a time-to-live per entry.
+ * Entries are dropped after commit of any write that touches the product.
+ */
+@Component
+public class ProductCache {
+    
+    private final int maxSize;
+    private final long ttlMillis;
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    
+    // Bumped on every invalidation so loads that raced with a write are not cached
+    private final AtomicLong generation = new AtomicLong();
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    
+    public ProductCache(@Value("${app.cache.products.max-size:10000}") int maxSize,
+                        @Value("${app.cache.products.ttl:600000}") long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+    }
+    
+    public ProductDTO get(Long id) {
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Entry entry = entries.get(id);
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            if (entry.expiresAt <= now) {
+                entries.remove(id);
+                expirations.increment();
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return entry.product;
+        }
+    }
+    
+    public long generation() {
+        return generation.get();
+    }
+    
+    /**
+     * Stores a product loaded while {@code loadGeneration} was current. The value is discarded
+     * if an invalidation happened in the meantime, since it may predate that write.
+     */
+    public void put(Long id, ProductDTO product, long loadGeneration) {
+        if (maxSize <= 0) {
+            return;
+        }
+        long expiresAt = System.currentTimeMillis() + ttlMillis;
+        synchronized (entries) {
+            if (generation.get() != loadGeneration) {
+                return;
+            }
+            entries.put(id, new Entry(product, expiresAt));
+            if (entries.size() > maxSize) {
+                Iterator<Map.Entry<Long, Entry>> eldest = entries.entrySet().iterator();
+                while (entries.size() > maxSize && eldest.hasNext()) {
+                    eldest.next();
+                    eldest.remove();
+                    evictions.increment();
+                }
+            }
+        }
+    }
+    
+    public void invalidate(Collection<Long> ids) {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            for (Long id : ids) {
+                if (entries.remove(id) != null) {
+                    invalidations.increment();
+                }
+            }
+        }
+    }
+    
+    public void clear() {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            invalidations.add(entries.size());
+            entries.clear();
+        }
+    }
+    
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        invalidate(event.getProductIds());
+    }
+    
+    // Cached details embed the category name, and category changes are rare enough to drop everything
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        clear();
+    }
+    
+    public CacheStatsDTO stats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return new CacheStatsDTO("products", size, maxSize, hits.sum(), misses.sum(),
+                evictions.sum(), expirations.sum(), invalidations.sum());
+    }
+    
+    private static final class Entry {
+        private final ProductDTO product;
+        private final long expiresAt;
+        
+        private Entry(ProductDTO product, long expiresAt) {
+            this.product = product;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
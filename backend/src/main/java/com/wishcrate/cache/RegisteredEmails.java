@@ -0,0 +1,80 @@
+package com.wishcrate.cache;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Locale;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.wishcrate.util.JdbcStreaming;
+import com.wishcrate.util.ScalableBloomFilter;
+
+/**
+ * Bloom filter of every registered email, so registration can skip the existence query for
+ * addresses that are certainly new. A hit only means "maybe": the caller still asks the
+ * database, and the unique constraint on users.email stays the final word, which also covers
+ * accounts created on other instances after this one started.
+ */
+@Component
+public class RegisteredEmails implements SmartInitializingSingleton {
+    
+    private static final Logger log = LoggerFactory.getLogger(RegisteredEmails.class);
+    
+    private static final String EMAILS_SQL = "SELECT email FROM users";
+    
+    private final DataSource dataSource;
+    private final ScalableBloomFilter filter;
+    
+    public RegisteredEmails(DataSource dataSource,
+                            @Value("${app.auth.email-filter.initial-capacity:100000}") long initialCapacity,
+                            @Value("${app.auth.email-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.dataSource = dataSource;
+        this.filter = new ScalableBloomFilter(initialCapacity, falsePositiveRate);
+    }
+    
+    /**
+     * Loads existing emails. Runs before the web server accepts requests, so no registration
+     * can slip in between the scan and the first {@link #add}.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        long count = 0;
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = JdbcStreaming.prepareForwardOnly(connection, EMAILS_SQL)) {
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    filter.add(normalize(rs.getString(1)));
+                    count++;
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to load registered emails", e);
+        }
+        log.info("Loaded {} registered emails into {} filter stages ({} KB)",
+                count, filter.getStageCount(), filter.getBitCount() / 8 / 1024);
+    }
+    
+    /**
+     * False only when no account has this email; true means it has to be checked.
+     */
+    public boolean mightExist(String email) {
+        return email == null || filter.mightContain(normalize(email));
+    }
+    
+    public void add(String email) {
+        filter.add(normalize(email));
+    }
+    
+    // Email comparison in the database is case-insensitive, so the filter must be too
+    private static String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
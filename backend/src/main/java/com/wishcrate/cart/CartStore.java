@@ -0,0 +1,500 @@
+package com.wishcrate.cart;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.dao.NonTransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.wishcrate.event.OrderPlacedEvent;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Write-behind store of shopping carts, keyed by user id and split into independently locked
+ * shards. Reads and mutations work on memory only; a cart is loaded from the database the first
+ * time it's needed and changed carts are written back in batches by a background flusher, so
+ * any number of changes to a cart between two flushes cost one write. Idle carts are dropped
+ * from memory once written.
+ */
+@Component
+public class CartStore {
+    
+    private static final Logger log = LoggerFactory.getLogger(CartStore.class);
+    
+    private static final String LOAD_SQL =
+            "SELECT c.id, ci.product_id, ci.quantity, ci.price FROM carts c "
+            + "LEFT JOIN cart_items ci ON ci.cart_id = c.id WHERE c.user_id = ? ORDER BY c.id, ci.id";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final long flushIntervalMillis;
+    private final int flushBatchSize;
+    private final long idleMillis;
+    
+    private final Shard[] shards;
+    private final Set<Long> dirtyUsers = ConcurrentHashMap.newKeySet();
+    // Held while dirty carts are written or idle ones evicted, which also serializes the
+    // shutdown flush with a scheduled one still running
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "cart-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    public CartStore(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                     @Value("${app.cart.shards:64}") int shardCount,
+                     @Value("${app.cart.flush-interval:1000}") long flushIntervalMillis,
+                     @Value("${app.cart.flush-batch-size:500}") int flushBatchSize,
+                     @Value("${app.cart.idle-ttl:1800000}") long idleMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.flushBatchSize = flushBatchSize;
+        this.idleMillis = idleMillis;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard();
+        }
+    }
+    
+    @PostConstruct
+    public void start() {
+        flusher.scheduleWithFixedDelay(this::flushInBackground, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdownNow();
+        flushDirty();
+    }
+    
+    public Snapshot get(Long userId) {
+        Shard shard = shard(userId);
+        synchronized (shard) {
+            CartState state = shard.carts.get(userId);
+            if (state != null) {
+                state.lastAccess = System.currentTimeMillis();
+                return state.snapshot();
+            }
+        }
+        return resident(userId).snapshot();
+    }
+    
+    /**
+     * Applies {@code mutation} to a copy of the cart's lines, keyed by product id, and keeps the
+     * copy only if the mutation completes, so a mutation that throws leaves the cart unchanged.
+     */
+    public Snapshot update(Long userId, CartMutation mutation) {
+        CartState state = resident(userId);
+        Shard shard = shard(userId);
+        synchronized (shard) {
+            // The cart may have been evicted since it was looked up; the fresh load is current
+            CartState current = shard.carts.get(userId);
+            if (current == null) {
+                shard.carts.put(userId, state);
+                current = state;
+            }
+            Map<Long, Line> lines = new LinkedHashMap<>(current.lines);
+            mutation.apply(lines);
+            current.lines = Collections.unmodifiableMap(lines);
+            current.lastAccess = System.currentTimeMillis();
+            current.dirty = true;
+            dirtyUsers.add(userId);
+            return current.snapshot();
+        }
+    }
+    
+    /**
+     * Takes the ordered quantities out of the cart, keeping any added while the order was being
+     * placed.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        update(event.getUserId(), lines -> event.getQuantities().forEach((productId, ordered) ->
+                lines.computeIfPresent(productId, (id, line) -> line.getQuantity() > ordered
+                        ? line.withQuantity(line.getQuantity() - ordered)
+                        : null)));
+    }
+    
+    private void flushInBackground() {
+        try {
+            flushDirty();
+            evictIdle();
+        } catch (RuntimeException e) {
+            log.error("Cart flush failed", e);
+        }
+    }
+    
+    private void flushDirty() {
+        flushLock.lock();
+        try {
+            List<Long> batch = new ArrayList<>(Math.min(dirtyUsers.size(), flushBatchSize));
+            Iterator<Long> it = dirtyUsers.iterator();
+            while (it.hasNext()) {
+                batch.add(it.next());
+                it.remove();
+                if (batch.size() == flushBatchSize) {
+                    write(batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+    
+    // Caller holds the flush lock and has taken the users out of dirtyUsers
+    private void write(List<Long> userIds) {
+        List<Pending> pending = new ArrayList<>(userIds.size());
+        for (Long userId : userIds) {
+            Shard shard = shard(userId);
+            synchronized (shard) {
+                CartState state = shard.carts.get(userId);
+                if (state != null && state.dirty) {
+                    pending.add(new Pending(userId, state.cartId, state.lines));
+                    state.dirty = false;
+                }
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> writeRows(pending));
+        } catch (RuntimeException e) {
+            if (!isCartError(e)) {
+                // Retried on the next flush, merged with whatever changed since
+                markDirty(pending);
+                throw e;
+            }
+            log.warn("Writing {} carts failed, retrying them one by one", pending.size(), e);
+            writeEach(pending);
+            return;
+        }
+        written(pending);
+    }
+    
+    // Isolates the carts that broke a batch. A cart whose own data is rejected is logged and
+    // handed to rejected(), so it is kept in memory rather than replaced by its stale database copy.
+    private void writeEach(List<Pending> pending) {
+        List<Pending> written = new ArrayList<>();
+        for (int i = 0; i < pending.size(); i++) {
+            Pending cart = pending.get(i);
+            // Forget any cart id assigned inside the rolled back batch
+            cart.cartId = cart.loadedCartId;
+            try {
+                transactionTemplate.executeWithoutResult(status -> writeRows(List.of(cart)));
+                written.add(cart);
+            } catch (RuntimeException e) {
+                if (!isCartError(e)) {
+                    written(written);
+                    markDirty(pending.subList(i, pending.size()));
+                    throw e;
+                }
+                log.error("Writing cart for user {} with {} lines was rejected", cart.userId, cart.lines.size(), e);
+                rejected(cart);
+            }
+        }
+        written(written);
+    }
+    
+    // Rejected data, as opposed to an unreachable or busy database, which is worth retrying
+    private static boolean isCartError(RuntimeException e) {
+        return e instanceof NonTransientDataAccessException
+                && !(e instanceof NonTransientDataAccessResourceException);
+    }
+    
+    /**
+     * Pins a cart whose write was rejected so it is never evicted, and drops its lines for
+     * products that no longer exist, the usual cause, so the next flush can write the rest.
+     */
+    private void rejected(Pending cart) {
+        Set<Long> missing = new HashSet<>(cart.lines.keySet());
+        if (!missing.isEmpty()) {
+            try {
+                namedJdbcTemplate.query("SELECT id FROM products WHERE id IN (:productIds)",
+                        new MapSqlParameterSource("productIds", missing),
+                        rs -> {
+                            missing.remove(rs.getLong(1));
+                        });
+            } catch (RuntimeException e) {
+                log.warn("Could not check the products in the cart of user {}", cart.userId, e);
+                missing.clear();
+            }
+        }
+        Shard shard = shard(cart.userId);
+        synchronized (shard) {
+            CartState state = shard.carts.get(cart.userId);
+            if (state == null) {
+                return;
+            }
+            state.rejected = true;
+            if (!missing.isEmpty()) {
+                log.warn("Removing deleted products {} from the cart of user {}", missing, cart.userId);
+                Map<Long, Line> lines = new LinkedHashMap<>(state.lines);
+                lines.keySet().removeAll(missing);
+                state.lines = Collections.unmodifiableMap(lines);
+                state.dirty = true;
+                dirtyUsers.add(cart.userId);
+            }
+        }
+    }
+    
+    private void markDirty(Collection<Pending> carts) {
+        for (Pending cart : carts) {
+            Shard shard = shard(cart.userId);
+            synchronized (shard) {
+                CartState state = shard.carts.get(cart.userId);
+                if (state != null) {
+                    state.dirty = true;
+                }
+            }
+            dirtyUsers.add(cart.userId);
+        }
+    }
+    
+    private void written(List<Pending> carts) {
+        for (Pending cart : carts) {
+            Shard shard = shard(cart.userId);
+            synchronized (shard) {
+                CartState state = shard.carts.get(cart.userId);
+                if (state != null) {
+                    if (state.cartId == null) {
+                        state.cartId = cart.cartId;
+                    }
+                    state.rejected = false;
+                }
+            }
+        }
+    }
+    
+    // Replaces each cart's item rows with its current lines
+    private void writeRows(List<Pending> pending) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Long> unknown = new ArrayList<>();
+        for (Pending cart : pending) {
+            if (cart.cartId == null) {
+                unknown.add(cart.userId);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            Map<Long, Long> existing = new HashMap<>();
+            namedJdbcTemplate.query("SELECT id, user_id FROM carts WHERE user_id IN (:userIds)",
+                    new MapSqlParameterSource("userIds", unknown),
+                    rs -> {
+                        existing.putIfAbsent(rs.getLong(2), rs.getLong(1));
+                    });
+            for (Pending cart : pending) {
+                if (cart.cartId == null) {
+                    cart.cartId = existing.get(cart.userId);
+                }
+                if (cart.cartId == null && !cart.lines.isEmpty()) {
+                    cart.cartId = insertCart(cart.userId, now);
+                }
+            }
+        }
+        
+        List<Long> cartIds = new ArrayList<>(pending.size());
+        List<Object[]> items = new ArrayList<>();
+        for (Pending cart : pending) {
+            if (cart.cartId == null) {
+                continue;
+            }
+            cartIds.add(cart.cartId);
+            for (Line line : cart.lines.values()) {
+                items.add(new Object[]{cart.cartId, line.getProductId(), line.getQuantity(), line.getPrice()});
+            }
+        }
+        if (cartIds.isEmpty()) {
+            return;
+        }
+        MapSqlParameterSource ids = new MapSqlParameterSource("cartIds", cartIds);
+        namedJdbcTemplate.update("DELETE FROM cart_items WHERE cart_id IN (:cartIds)", ids);
+        jdbcTemplate.batchUpdate("INSERT INTO cart_items (cart_id, product_id, quantity, price) VALUES (?, ?, ?, ?)", items);
+        namedJdbcTemplate.update("UPDATE carts SET updated_at = :now WHERE id IN (:cartIds)", ids.addValue("now", now));
+    }
+    
+    private Long insertCart(Long userId, Timestamp now) {
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO carts (user_id, created_at, updated_at) VALUES (?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS);
+            statement.setLong(1, userId);
+            statement.setTimestamp(2, now);
+            statement.setTimestamp(3, now);
+            return statement;
+        }, keys);
+        return keys.getKey().longValue();
+    }
+    
+    // Under the flush lock, so a cart whose write is still in progress can't be dropped and reloaded.
+    // Carts not yet written, or whose last write was rejected, differ from the database and stay.
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleMillis;
+        flushLock.lock();
+        try {
+            for (Shard shard : shards) {
+                synchronized (shard) {
+                    shard.carts.values().removeIf(state -> !state.dirty && !state.rejected && state.lastAccess < cutoff);
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+    
+    // The user's cart, loaded from the database if it isn't in memory
+    private CartState resident(Long userId) {
+        Shard shard = shard(userId);
+        synchronized (shard) {
+            CartState state = shard.carts.get(userId);
+            if (state != null) {
+                return state;
+            }
+        }
+        // Loaded outside the shard lock so a slow read doesn't stall the shard's other users
+        CartState loaded = load(userId);
+        synchronized (shard) {
+            CartState raced = shard.carts.putIfAbsent(userId, loaded);
+            return raced != null ? raced : loaded;
+        }
+    }
+    
+    private CartState load(Long userId) {
+        CartState state = new CartState();
+        Map<Long, Line> lines = new LinkedHashMap<>();
+        jdbcTemplate.query(LOAD_SQL, rs -> {
+            if (state.cartId == null) {
+                state.cartId = rs.getLong(1);
+            }
+            long productId = rs.getLong(2);
+            if (!rs.wasNull() && rs.getLong(1) == state.cartId) {
+                lines.merge(productId, new Line(productId, rs.getInt(3), rs.getBigDecimal(4)),
+                        (a, b) -> new Line(productId, a.getQuantity() + b.getQuantity(), a.getPrice()));
+            }
+        }, userId);
+        state.lines = Collections.unmodifiableMap(lines);
+        state.lastAccess = System.currentTimeMillis();
+        return state;
+    }
+    
+    private Shard shard(Long userId) {
+        return shards[(int) Math.floorMod(userId * 0x9E3779B97F4A7C15L >>> 32, (long) shards.length)];
+    }
+    
+    @FunctionalInterface
+    public interface CartMutation {
+        void apply(Map<Long, Line> lines);
+    }
+    
+    /**
+     * One product in a cart, with the unit price it was added at.
+     */
+    public static final class Line {
+        private final Long productId;
+        private final int quantity;
+        private final BigDecimal price;
+    
+        public Line(Long productId, int quantity, BigDecimal price) {
+            this.productId = productId;
+            this.quantity = quantity;
+            this.price = price;
+        }
+    
+        public Long getProductId() { return productId; }
+        public int getQuantity() { return quantity; }
+        public BigDecimal getPrice() { return price; }
+    
+        public Line withQuantity(int quantity) {
+            return new Line(productId, quantity, price);
+        }
+    }
+    
+    /**
+     * A cart's contents at one point in time. The cart id is null until the cart is first written.
+     */
+    public static final class Snapshot {
+        private final Long cartId;
+        private final List<Line> lines;
+    
+        private Snapshot(Long cartId, Collection<Line> lines) {
+            this.cartId = cartId;
+            this.lines = List.copyOf(lines);
+        }
+    
+        public Long getCartId() { return cartId; }
+        public List<Line> getLines() { return lines; }
+    }
+    
+    private static final class Shard {
+        private final Map<Long, CartState> carts = new HashMap<>();
+    }
+    
+    // Guarded by its shard's lock
+    private static final class CartState {
+        private Long cartId;
+        private Map<Long, Line> lines = Map.of();
+        private boolean dirty;
+        // Its last write was rejected, so the database copy is stale
+        private boolean rejected;
+        private long lastAccess;
+    
+        private Snapshot snapshot() {
+            return new Snapshot(cartId, lines.values());
+        }
+    }
+    
+    private static final class Pending {
+        private final Long userId;
+        private final Map<Long, Line> lines;
+        private final Long loadedCartId;
+        private Long cartId;
+    
+        private Pending(Long userId, Long cartId, Map<Long, Line> lines) {
+            this.userId = userId;
+            this.loadedCartId = cartId;
+            this.cartId = cartId;
+            this.lines = lines;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.wishcrate.config;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.AbstractMappingJacksonResponseBodyAdvice;
+
+import com.wishcrate.controller.ProductController;
+import com.wishcrate.dto.ProductFields;
+
+/**
+ * Applies the {@code fields} request parameter of product endpoints to the serialized
+ * products, wherever they sit in the response (a list, a page or a search response).
+ */
+@RestControllerAdvice(assignableTypes = ProductController.class)
+public class ProductFieldsResponseAdvice extends AbstractMappingJacksonResponseBodyAdvice {
+    
+    @Override
+    protected void beforeBodyWriteInternal(MappingJacksonValue bodyContainer, MediaType contentType,
+                                           MethodParameter returnType, ServerHttpRequest request,
+                                           ServerHttpResponse response) {
+        String fields = ((ServletServerHttpRequest) request).getServletRequest().getParameter("fields");
+        ProductFields productFields = ProductFields.parse(fields);
+        if (!productFields.isAll()) {
+            bodyContainer.setFilters(productFields.toFilterProvider());
+        }
+    }
+}
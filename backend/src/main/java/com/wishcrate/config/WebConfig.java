@@ -0,0 +1,71 @@
+package com.wishcrate.config;
+
+import java.time.Duration;
+import java.util.Map;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.wishcrate.cache.CatalogVersion;
+import com.wishcrate.cache.CategoryTree;
+import com.wishcrate.cache.FeaturedProductsSnapshot;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+    
+    private final CatalogVersion catalogVersion;
+    private final FeaturedProductsSnapshot featuredProductsSnapshot;
+    private final CategoryTree categoryTree;
+    
+    public WebConfig(CatalogVersion catalogVersion, FeaturedProductsSnapshot featuredProductsSnapshot,
+                     CategoryTree categoryTree) {
+        this.catalogVersion = catalogVersion;
+        this.featuredProductsSnapshot = featuredProductsSnapshot;
+        this.categoryTree = categoryTree;
+    }
+    
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Revalidate on every use; a matching ETag turns the request into a cheap 304
+        CacheControl revalidate = CacheControl.noCache().cachePublic();
+        
+        registry.addInterceptor(new ConditionalGetInterceptor(
+                        request -> featuredProductsSnapshot.getEtag(),
+                        CacheControl.maxAge(Duration.ofSeconds(60)).cachePublic()))
+                .addPathPatterns("/api/products/featured");
+        
+        registry.addInterceptor(new ConditionalGetInterceptor(
+                        request -> catalogVersion.productEtag(Long.valueOf(pathVariable(request, "id"))),
+                        revalidate))
+                .addPathPatterns("/api/products/{id:\\d+}");
+        
+        registry.addInterceptor(new ConditionalGetInterceptor(request -> catalogVersion.catalogEtag(), revalidate))
+                .addPathPatterns("/api/products", "/api/products/search", "/api/products/search/fuzzy",
+                        "/api/products/query", "/api/products/category/**", "/api/products/price-range",
+                        "/api/products/top-rated", "/api/products/best-sellers");
+        
+        registry.addInterceptor(new ConditionalGetInterceptor(
+                        request -> catalogVersion.categoryEtag(),
+                        CacheControl.maxAge(Duration.ofSeconds(60)).cachePublic().mustRevalidate()))
+                .addPathPatterns("/api/categories", "/api/categories/**")
+                .excludePathPatterns("/api/categories/tree");
+        
+        // Product counts change with the catalog, so the tree is tagged from its own content
+        registry.addInterceptor(new ConditionalGetInterceptor(
+                        request -> categoryTree.getEtag(),
+                        CacheControl.maxAge(Duration.ofSeconds(60)).cachePublic().mustRevalidate()))
+                .addPathPatterns("/api/categories/tree");
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static String pathVariable(HttpServletRequest request, String name) {
+        Map<String, String> variables = (Map<String, String>) request.getAttribute(
+                HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        return variables.get(name);
+    }
+}
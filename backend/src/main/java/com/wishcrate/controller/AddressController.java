@@ -4,8 +4,6 @@ import java.util.List;
 import java.util.Map;
 
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -15,9 +13,9 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.wishcrate.model.Address;
-import com.wishcrate.model.User;
 import com.wishcrate.repository.AddressRepository;
 import com.wishcrate.repository.UserRepository;
+import com.wishcrate.security.AuthenticatedUser;
 
 @RestController
 @RequestMapping("/api/addresses")
@@ -31,21 +29,15 @@ public class AddressController {
         this.userRepository = userRepository;
     }
 
-    private User getCurrentUser() {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        return userRepository.findByEmail(auth.getName())
-                .orElseThrow(() -> new RuntimeException("User not found"));
-    }
-
     @GetMapping
     public ResponseEntity<List<Address>> getUserAddresses() {
-        User user = getCurrentUser();
-        return ResponseEntity.ok(addressRepository.findByUserId(user.getId()));
+        Long userId = AuthenticatedUser.current().getId();
+        return ResponseEntity.ok(addressRepository.findByUserId(userId));
     }
 
     @PostMapping
     public ResponseEntity<Address> saveAddress(@RequestBody Map<String, String> body) {
-        User user = getCurrentUser();
+        Long userId = AuthenticatedUser.current().getId();
 
         Address address = Address.builder()
                 .fullName(body.get("fullName"))
@@ -56,7 +48,7 @@ public class AddressController {
                 .state(body.getOrDefault("state", ""))
                 .country(body.getOrDefault("country", "India"))
                 .zipCode(body.getOrDefault("zipCode", ""))
-                .user(user)
+                .user(userRepository.getReferenceById(userId))
                 .build();
 
         return ResponseEntity.ok(addressRepository.save(address));
@@ -64,10 +56,10 @@ public class AddressController {
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteAddress(@PathVariable Long id) {
-        User user = getCurrentUser();
+        Long userId = AuthenticatedUser.current().getId();
         Address address = addressRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Address not found"));
-        if (!address.getUser().getId().equals(user.getId())) {
+        if (!address.getUser().getId().equals(userId)) {
             return ResponseEntity.status(403).build();
         }
         addressRepository.delete(address);
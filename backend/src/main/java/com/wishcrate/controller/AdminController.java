@@ -1,14 +1,28 @@
 package com.wishcrate.controller;
 
+import java.util.List;
+
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.wishcrate.dto.AdminStatsDTO;
+import com.wishcrate.dto.AuthStatsDTO;
+import com.wishcrate.dto.CacheStatsDTO;
 import com.wishcrate.service.AdminService;
+import com.wishcrate.service.ProductExportService;
+
+import jakarta.servlet.http.HttpServletRequest;
 
 @RestController
 @RequestMapping("/api/admin")
@@ -16,9 +30,11 @@ import com.wishcrate.service.AdminService;
 public class AdminController {
     
     private final AdminService adminService;
+    private final ProductExportService productExportService;
     
-    public AdminController(AdminService adminService) {
+    public AdminController(AdminService adminService, ProductExportService productExportService) {
         this.adminService = adminService;
+        this.productExportService = productExportService;
     }
     
     @GetMapping("/stats")
@@ -27,4 +43,44 @@ public class AdminController {
         AdminStatsDTO stats = adminService.getAdminStats();
         return ResponseEntity.ok(stats);
     }
+    
+    @GetMapping("/caches")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<CacheStatsDTO>> getCacheStats() {
+        return ResponseEntity.ok(adminService.getCacheStats());
+    }
+    
+    @GetMapping("/auth")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<AuthStatsDTO> getAuthStats() {
+        return ResponseEntity.ok(adminService.getAuthStats());
+    }
+    
+    @PostMapping("/users/{id}/disable")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> disableUser(@PathVariable Long id) {
+        adminService.setUserEnabled(id, false);
+        return ResponseEntity.noContent().build();
+    }
+    
+    @PostMapping("/users/{id}/enable")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> enableUser(@PathVariable Long id) {
+        adminService.setUserEnabled(id, true);
+        return ResponseEntity.noContent().build();
+    }
+    
+    @GetMapping("/products/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportProducts(
+            @RequestParam(defaultValue = "ndjson") String format, HttpServletRequest request) {
+        
+        boolean csv = format.equalsIgnoreCase("csv");
+        StreamingResponseBody body = productExportService.export(csv, request);
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv") : new MediaType("application", "x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(csv ? "products.csv" : "products.ndjson").build().toString())
+                .body(body);
+    }
 }
@@ -4,9 +4,12 @@ import com.wishcrate.dto.AuthResponse;
 import com.wishcrate.dto.LoginRequest;
 import com.wishcrate.dto.RegisterRequest;
 import com.wishcrate.service.AuthService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Map;
+
 @RestController
 @RequestMapping("/api/auth")
 public class AuthController {
@@ -18,12 +21,31 @@ public class AuthController {
     }
     
     @PostMapping("/register")
-    public ResponseEntity<AuthResponse> register(@RequestBody RegisterRequest request) {
-        return ResponseEntity.ok(authService.register(request));
+    public ResponseEntity<AuthResponse> register(@RequestBody RegisterRequest request, HttpServletRequest servletRequest) {
+        return ResponseEntity.ok(authService.register(request, servletRequest.getRemoteAddr()));
     }
     
     @PostMapping("/login")
-    public ResponseEntity<AuthResponse> login(@RequestBody LoginRequest request) {
-        return ResponseEntity.ok(authService.login(request));
+    public ResponseEntity<AuthResponse> login(@RequestBody LoginRequest request, HttpServletRequest servletRequest) {
+        return ResponseEntity.ok(authService.login(request, servletRequest.getRemoteAddr()));
+    }
+    
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestHeader("Authorization") String authorization) {
+        if (!authorization.startsWith("Bearer ")) {
+            throw new RuntimeException("Invalid token");
+        }
+        authService.revokeToken(authorization.substring(7));
+        return ResponseEntity.noContent().build();
+    }
+    
+    @PostMapping("/revoke")
+    public ResponseEntity<Void> revoke(@RequestBody Map<String, String> body) {
+        String token = body.get("token");
+        if (token == null) {
+            throw new RuntimeException("Token is required");
+        }
+        authService.revokeToken(token);
+        return ResponseEntity.noContent().build();
     }
 }
@@ -1,10 +1,13 @@
 package com.wishcrate.controller;
 
 import com.wishcrate.dto.CartDTO;
+import com.wishcrate.dto.CartOperationDTO;
 import com.wishcrate.service.CartService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/cart")
 public class CartController {
@@ -27,6 +30,11 @@ public class CartController {
         return ResponseEntity.ok(cartService.addToCart(productId, quantity));
     }
     
+    @PatchMapping
+    public ResponseEntity<CartDTO> updateCart(@RequestBody List<CartOperationDTO> operations) {
+        return ResponseEntity.ok(cartService.applyOperations(operations));
+    }
+    
     @PutMapping("/update/{cartItemId}")
     public ResponseEntity<CartDTO> updateCartItem(
             @PathVariable Long cartItemId,
@@ -16,6 +16,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.wishcrate.dto.CategoryDTO;
+import com.wishcrate.dto.CategoryTreeDTO;
 import com.wishcrate.model.Category;
 import com.wishcrate.service.CategoryService;
 
@@ -39,6 +40,11 @@ public class CategoryController {
         return ResponseEntity.ok(categoryDTOs);
     }
     
+    @GetMapping("/tree")
+    public ResponseEntity<List<CategoryTreeDTO>> getCategoryTree() {
+        return ResponseEntity.ok(categoryService.getCategoryTree());
+    }
+    
     @GetMapping("/{id}")
     public ResponseEntity<CategoryDTO> getCategoryById(@PathVariable Long id) {
         Category category = categoryService.getCategoryById(id);
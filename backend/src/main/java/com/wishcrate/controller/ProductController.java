@@ -1,29 +1,45 @@
 package com.wishcrate.controller;
 
+import com.wishcrate.dto.CursorPage;
+import com.wishcrate.dto.ImportResultDTO;
+import com.wishcrate.dto.ProductCursor;
 import com.wishcrate.dto.ProductDTO;
+import com.wishcrate.dto.ProductFields;
+import com.wishcrate.dto.ProductListingDTO;
+import com.wishcrate.dto.ProductQueryResponse;
+import com.wishcrate.dto.ProductSearchResponse;
+import com.wishcrate.dto.SuggestionDTO;
+import com.wishcrate.search.FacetQuery;
+import com.wishcrate.service.ProductImportService;
 import com.wishcrate.service.ProductService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/products")
 public class ProductController {
     
     private final ProductService productService;
+    private final ProductImportService productImportService;
     
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, ProductImportService productImportService) {
         this.productService = productService;
+        this.productImportService = productImportService;
     }
     
     @GetMapping
-    public ResponseEntity<Page<ProductDTO>> getAllProducts(
+    public ResponseEntity<Page<ProductListingDTO>> getAllProducts(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "12") int size,
             @RequestParam(defaultValue = "id") String sortBy,
@@ -36,13 +52,51 @@ public class ProductController {
         return ResponseEntity.ok(productService.getAllProducts(pageRequest));
     }
     
+    @GetMapping(params = "cursor")
+    public ResponseEntity<CursorPage<ProductListingDTO>> getAllProductsByCursor(
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "12") int size,
+            @RequestParam(defaultValue = "id") String sortBy,
+            @RequestParam(defaultValue = "DESC") String sortDir) {
+        
+        return ResponseEntity.ok(productService.getProductsAfter(
+                toCursor(cursor, sortBy, sortDir), null, null, null, size));
+    }
+    
     @GetMapping("/{id}")
-    public ResponseEntity<ProductDTO> getProductById(@PathVariable Long id) {
-        return ResponseEntity.ok(productService.getProductById(id));
+    public ResponseEntity<ProductDTO> getProductById(
+            @PathVariable Long id,
+            @RequestParam(required = false) String fields) {
+        
+        return ResponseEntity.ok(productService.getProductById(id, ProductFields.parse(fields)));
+    }
+    
+    @GetMapping("/{id}/frequently-bought-together")
+    public ResponseEntity<List<ProductListingDTO>> getFrequentlyBoughtTogether(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "8") int limit) {
+        
+        return ResponseEntity.ok(productService.getFrequentlyBoughtTogether(id, limit));
+    }
+    
+    @GetMapping("/{id}/similar")
+    public ResponseEntity<List<ProductListingDTO>> getSimilarProducts(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "8") int limit) {
+        
+        return ResponseEntity.ok(productService.getSimilarProducts(id, limit));
+    }
+    
+    @GetMapping("/batch")
+    public ResponseEntity<List<ProductDTO>> getProductsByIds(
+            @RequestParam List<Long> ids,
+            @RequestParam(required = false) String fields) {
+        
+        return ResponseEntity.ok(productService.getProductsByIds(ids, ProductFields.parse(fields)));
     }
     
     @GetMapping("/search")
-    public ResponseEntity<Page<ProductDTO>> searchProducts(
+    public ResponseEntity<Page<ProductListingDTO>> searchProducts(
             @RequestParam String keyword,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "12") int size) {
@@ -51,8 +105,41 @@ public class ProductController {
         return ResponseEntity.ok(productService.searchProducts(keyword, pageRequest));
     }
     
+    @GetMapping("/search/fuzzy")
+    public ResponseEntity<ProductSearchResponse> searchProductsFuzzy(
+            @RequestParam String keyword,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "12") int size) {
+        
+        PageRequest pageRequest = PageRequest.of(page, size);
+        return ResponseEntity.ok(productService.searchProductsFuzzy(keyword, pageRequest));
+    }
+    
+    @GetMapping("/suggest")
+    public ResponseEntity<List<SuggestionDTO>> suggest(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "8") int limit) {
+        
+        return ResponseEntity.ok(productService.suggest(q, limit));
+    }
+    
+    @GetMapping("/query")
+    public ResponseEntity<ProductQueryResponse> queryProducts(
+            @RequestParam(required = false) Set<Long> categoryId,
+            @RequestParam(required = false) Set<String> brand,
+            @RequestParam(required = false) Set<String> price,
+            @RequestParam(required = false) Integer minRating,
+            @RequestParam(defaultValue = "false") boolean inStock,
+            @RequestParam(defaultValue = "newest") String sort,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "12") int size) {
+        
+        FacetQuery query = new FacetQuery(categoryId, brand, price, minRating, inStock, sort);
+        return ResponseEntity.ok(productService.queryProducts(query, PageRequest.of(page, size)));
+    }
+    
     @GetMapping("/category/{categoryId}")
-    public ResponseEntity<Page<ProductDTO>> getProductsByCategory(
+    public ResponseEntity<Page<ProductListingDTO>> getProductsByCategory(
             @PathVariable Long categoryId,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "12") int size) {
@@ -61,8 +148,18 @@ public class ProductController {
         return ResponseEntity.ok(productService.getProductsByCategory(categoryId, pageRequest));
     }
     
+    @GetMapping(value = "/category/{categoryId}", params = "cursor")
+    public ResponseEntity<CursorPage<ProductListingDTO>> getProductsByCategoryByCursor(
+            @PathVariable Long categoryId,
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "12") int size) {
+        
+        return ResponseEntity.ok(productService.getProductsAfter(
+                toCursor(cursor, "id", "DESC"), categoryId, null, null, size));
+    }
+    
     @GetMapping("/price-range")
-    public ResponseEntity<Page<ProductDTO>> getProductsByPriceRange(
+    public ResponseEntity<Page<ProductListingDTO>> getProductsByPriceRange(
             @RequestParam BigDecimal minPrice,
             @RequestParam BigDecimal maxPrice,
             @RequestParam(defaultValue = "0") int page,
@@ -72,9 +169,38 @@ public class ProductController {
         return ResponseEntity.ok(productService.getProductsByPriceRange(minPrice, maxPrice, pageRequest));
     }
     
+    @GetMapping(value = "/price-range", params = "cursor")
+    public ResponseEntity<CursorPage<ProductListingDTO>> getProductsByPriceRangeByCursor(
+            @RequestParam BigDecimal minPrice,
+            @RequestParam BigDecimal maxPrice,
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "12") int size) {
+        
+        return ResponseEntity.ok(productService.getProductsAfter(
+                toCursor(cursor, "price", "ASC"), null, minPrice, maxPrice, size));
+    }
+    
+    @GetMapping("/top-rated")
+    public ResponseEntity<List<ProductListingDTO>> getTopRatedProducts(
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(defaultValue = "12") int limit) {
+        
+        return ResponseEntity.ok(productService.getTopRated(categoryId, limit));
+    }
+    
+    @GetMapping("/best-sellers")
+    public ResponseEntity<List<ProductListingDTO>> getBestSellers(
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(defaultValue = "12") int limit) {
+        
+        return ResponseEntity.ok(productService.getBestSellers(categoryId, limit));
+    }
+    
     @GetMapping("/featured")
-    public ResponseEntity<List<ProductDTO>> getFeaturedProducts() {
-        return ResponseEntity.ok(productService.getFeaturedProducts());
+    public ResponseEntity<byte[]> getFeaturedProducts() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(productService.getFeaturedProductsJson());
     }
     
     @PostMapping
@@ -83,6 +209,16 @@ public class ProductController {
         return ResponseEntity.ok(productService.createProduct(productDTO));
     }
     
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    @PreAuthorize("hasAnyRole('SELLER', 'ADMIN')")
+    public ResponseEntity<ImportResultDTO> importProducts(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream body) {
+        
+        boolean csv = contentType.isCompatibleWith(MediaType.parseMediaType("text/csv"));
+        return ResponseEntity.ok(productImportService.importProducts(body, csv));
+    }
+    
     @PutMapping("/{id}")
     @PreAuthorize("hasAnyRole('SELLER', 'ADMIN')")
     public ResponseEntity<ProductDTO> updateProduct(@PathVariable Long id, @RequestBody ProductDTO productDTO) {
@@ -95,4 +231,12 @@ public class ProductController {
         productService.deleteProduct(id);
         return ResponseEntity.ok().build();
     }
+    
+    // An empty cursor starts a new scan; otherwise the token carries its own sort order
+    private ProductCursor toCursor(String cursor, String sortBy, String sortDir) {
+        if (cursor.isEmpty()) {
+            return ProductCursor.start(sortBy, sortDir.equalsIgnoreCase("ASC"));
+        }
+        return ProductCursor.decode(cursor);
+    }
 }
@@ -0,0 +1,30 @@
+package com.wishcrate.dto;
+
+public class AuthStatsDTO {
+    private HashingStatsDTO hashing;
+    private RateLimitStatsDTO rateLimits;
+    
+    public AuthStatsDTO() {
+    }
+    
+    public AuthStatsDTO(HashingStatsDTO hashing, RateLimitStatsDTO rateLimits) {
+        this.hashing = hashing;
+        this.rateLimits = rateLimits;
+    }
+    
+    public HashingStatsDTO getHashing() {
+        return hashing;
+    }
+    
+    public void setHashing(HashingStatsDTO hashing) {
+        this.hashing = hashing;
+    }
+    
+    public RateLimitStatsDTO getRateLimits() {
+        return rateLimits;
+    }
+    
+    public void setRateLimits(RateLimitStatsDTO rateLimits) {
+        this.rateLimits = rateLimits;
+    }
+}
@@ -0,0 +1,28 @@
+package com.wishcrate.dto;
+
+/**
+ * One step of a batch cart change: {@code add} a quantity of a product, {@code update} a line
+ * to a quantity (zero or less removes it) or {@code remove} a line.
+ */
+public class CartOperationDTO {
+    private String op;
+    private Long productId;
+    private Integer quantity;
+
+    public CartOperationDTO() {}
+
+    public CartOperationDTO(String op, Long productId, Integer quantity) {
+        this.op = op;
+        this.productId = productId;
+        this.quantity = quantity;
+    }
+
+    public String getOp() { return op; }
+    public void setOp(String op) { this.op = op; }
+
+    public Long getProductId() { return productId; }
+    public void setProductId(Long productId) { this.productId = productId; }
+
+    public Integer getQuantity() { return quantity; }
+    public void setQuantity(Integer quantity) { this.quantity = quantity; }
+}
@@ -0,0 +1,14 @@
+package com.wishcrate.dto;
+
+public class CategoryBreadcrumbDTO {
+    private final Long id;
+    private final String name;
+    
+    public CategoryBreadcrumbDTO(Long id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+    
+    public Long getId() { return id; }
+    public String getName() { return name; }
+}
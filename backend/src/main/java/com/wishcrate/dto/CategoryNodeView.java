@@ -0,0 +1,11 @@
+package com.wishcrate.dto;
+
+/**
+ * A category's own columns and parent id, without loading the entity graph.
+ */
+public interface CategoryNodeView {
+    Long getId();
+    String getName();
+    String getImageUrl();
+    Long getParentId();
+}
@@ -0,0 +1,43 @@
+package com.wishcrate.dto;
+
+import java.util.List;
+
+/**
+ * One node of the cached category tree. Instances are shared between requests, so they are
+ * immutable.
+ */
+public class CategoryTreeDTO {
+    private final Long id;
+    private final String name;
+    private final String imageUrl;
+    private final long productCount;
+    private final long totalProductCount;
+    private final List<CategoryBreadcrumbDTO> path;
+    private final List<CategoryTreeDTO> children;
+    
+    public CategoryTreeDTO(Long id, String name, String imageUrl, long productCount, long totalProductCount,
+                           List<CategoryBreadcrumbDTO> path, List<CategoryTreeDTO> children) {
+        this.id = id;
+        this.name = name;
+        this.imageUrl = imageUrl;
+        this.productCount = productCount;
+        this.totalProductCount = totalProductCount;
+        this.path = List.copyOf(path);
+        this.children = List.copyOf(children);
+    }
+    
+    public Long getId() { return id; }
+    public String getName() { return name; }
+    public String getImageUrl() { return imageUrl; }
+    
+    /** Active products directly in this category. */
+    public long getProductCount() { return productCount; }
+    
+    /** Active products in this category and all of its subcategories. */
+    public long getTotalProductCount() { return totalProductCount; }
+    
+    /** Breadcrumbs from the root down to and including this category. */
+    public List<CategoryBreadcrumbDTO> getPath() { return path; }
+    
+    public List<CategoryTreeDTO> getChildren() { return children; }
+}
@@ -0,0 +1,91 @@
+package com.wishcrate.dto;
+
+public class HashingStatsDTO {
+    private int threads;
+    private int active;
+    private int queueDepth;
+    private int queueCapacity;
+    private long completed;
+    private long rejected;
+    private long averageLatencyMillis;
+    private long maxLatencyMillis;
+    
+    public HashingStatsDTO() {
+    }
+    
+    public HashingStatsDTO(int threads, int active, int queueDepth, int queueCapacity, long completed,
+                           long rejected, long averageLatencyMillis, long maxLatencyMillis) {
+        this.threads = threads;
+        this.active = active;
+        this.queueDepth = queueDepth;
+        this.queueCapacity = queueCapacity;
+        this.completed = completed;
+        this.rejected = rejected;
+        this.averageLatencyMillis = averageLatencyMillis;
+        this.maxLatencyMillis = maxLatencyMillis;
+    }
+    
+    public int getThreads() {
+        return threads;
+    }
+    
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+    
+    public int getActive() {
+        return active;
+    }
+    
+    public void setActive(int active) {
+        this.active = active;
+    }
+    
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+    
+    public void setQueueDepth(int queueDepth) {
+        this.queueDepth = queueDepth;
+    }
+    
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+    
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+    
+    public long getCompleted() {
+        return completed;
+    }
+    
+    public void setCompleted(long completed) {
+        this.completed = completed;
+    }
+    
+    public long getRejected() {
+        return rejected;
+    }
+    
+    public void setRejected(long rejected) {
+        this.rejected = rejected;
+    }
+    
+    public long getAverageLatencyMillis() {
+        return averageLatencyMillis;
+    }
+    
+    public void setAverageLatencyMillis(long averageLatencyMillis) {
+        this.averageLatencyMillis = averageLatencyMillis;
+    }
+    
+    public long getMaxLatencyMillis() {
+        return maxLatencyMillis;
+    }
+    
+    public void setMaxLatencyMillis(long maxLatencyMillis) {
+        this.maxLatencyMillis = maxLatencyMillis;
+    }
+}
@@ -0,0 +1,83 @@
+package com.wishcrate.dto;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Set;
+
+/**
+ * Position in a keyset-paginated product listing: the sort key and id of the last row returned.
+ * Travels to clients as an opaque URL-safe token.
+ */
+public class ProductCursor {
+    
+    public static final Set<String> SORT_KEYS = Set.of("id", "price", "averageRating", "name");
+    
+    private final String sortBy;
+    private final boolean ascending;
+    private final Object lastValue;
+    private final Long lastId;
+    
+    public ProductCursor(String sortBy, boolean ascending, Object lastValue, Long lastId) {
+        if (!SORT_KEYS.contains(sortBy)) {
+            throw new RuntimeException("Unsupported sort field for cursor paging: " + sortBy);
+        }
+        this.sortBy = sortBy;
+        this.ascending = ascending;
+        this.lastValue = lastValue;
+        this.lastId = lastId;
+    }
+    
+    /**
+     * A cursor positioned before the first row.
+     */
+    public static ProductCursor start(String sortBy, boolean ascending) {
+        return new ProductCursor(sortBy, ascending, null, null);
+    }
+    
+    public ProductCursor after(Object value, Long id) {
+        return new ProductCursor(sortBy, ascending, value, id);
+    }
+    
+    public boolean isStart() {
+        return lastId == null;
+    }
+    
+    public String getSortBy() { return sortBy; }
+    public boolean isAscending() { return ascending; }
+    public Object getLastValue() { return lastValue; }
+    public Long getLastId() { return lastId; }
+    
+    public String encode() {
+        String value = lastValue == null ? "" : lastValue.toString();
+        String raw = sortBy + "|" + (ascending ? "A" : "D") + "|" + lastId + "|" + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    public static ProductCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            // The value goes last and is split off with a limit so names containing '|' survive
+            String[] parts = raw.split("\\|", 4);
+            String sortBy = parts[0];
+            boolean ascending = "A".equals(parts[1]);
+            Long lastId = Long.valueOf(parts[2]);
+            return new ProductCursor(sortBy, ascending, parseValue(sortBy, parts[3]), lastId);
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Invalid cursor");
+        }
+    }
+    
+    private static Object parseValue(String sortBy, String value) {
+        switch (sortBy) {
+            case "id":
+                return Long.valueOf(value);
+            case "price":
+                return new BigDecimal(value);
+            case "averageRating":
+                return Double.valueOf(value);
+            default:
+                return value;
+        }
+    }
+}
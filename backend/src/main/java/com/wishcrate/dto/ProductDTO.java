@@ -4,6 +4,9 @@ import java.math.BigDecimal;
 import java.util.List;
 import java.util.Map;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
+
+@JsonFilter(ProductFields.FILTER_ID)
 public class ProductDTO {
     private Long id;
     private String name;
@@ -0,0 +1,77 @@
+package com.wishcrate.dto;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+
+/**
+ * Sparse fieldset requested with {@code fields=name,price,...}: the product properties a
+ * response should contain. It decides both what is read from the database and what is
+ * serialized. The id is always included.
+ */
+public class ProductFields {
+    
+    /**
+     * Filter id carried by {@link ProductDTO} and {@link ProductListingDTO}.
+     */
+    public static final String FILTER_ID = "productFields";
+    
+    public static final Set<String> NAMES = Set.of(
+            "id", "name", "description", "price", "discountPrice", "stockQuantity", "brand", "images",
+            "categoryId", "categoryName", "averageRating", "totalReviews", "sku", "specifications",
+            "featured", "active", "imageUrl");
+    
+    private static final ProductFields ALL = new ProductFields(NAMES);
+    
+    private final Set<String> names;
+    
+    private ProductFields(Set<String> names) {
+        this.names = Collections.unmodifiableSet(names);
+    }
+    
+    public static ProductFields all() {
+        return ALL;
+    }
+    
+    /**
+     * Parses a comma-separated field list; a missing or blank list means every field.
+     */
+    public static ProductFields parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return ALL;
+        }
+        Set<String> names = new LinkedHashSet<>();
+        names.add("id");
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!NAMES.contains(name)) {
+                throw new RuntimeException("Unknown product field: " + name);
+            }
+            names.add(name);
+        }
+        return names.size() == NAMES.size() ? ALL : new ProductFields(names);
+    }
+    
+    public boolean isAll() {
+        return this == ALL;
+    }
+    
+    public boolean includes(String name) {
+        return names.contains(name);
+    }
+    
+    public Set<String> getNames() {
+        return names;
+    }
+    
+    public FilterProvider toFilterProvider() {
+        return new SimpleFilterProvider().addFilter(FILTER_ID, SimpleBeanPropertyFilter.filterOutAllExcept(names));
+    }
+}
@@ -0,0 +1,9 @@
+package com.wishcrate.dto;
+
+/**
+ * One row of a product's image collection.
+ */
+public interface ProductImageView {
+    Long getProductId();
+    String getImage();
+}
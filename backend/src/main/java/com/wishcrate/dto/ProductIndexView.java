@@ -0,0 +1,22 @@
+package com.wishcrate.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Flat projection of the product columns the in-memory catalog indexes are built from.
+ */
+public interface ProductIndexView {
+    Long getId();
+    String getName();
+    String getBrand();
+    String getDescription();
+    Long getCategoryId();
+    String getCategoryName();
+    BigDecimal getPrice();
+    BigDecimal getDiscountPrice();
+    Integer getStockQuantity();
+    Double getAverageRating();
+    Integer getTotalReviews();
+    boolean isFeatured();
+    boolean isActive();
+}
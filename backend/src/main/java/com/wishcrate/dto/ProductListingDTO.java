@@ -0,0 +1,87 @@
+package com.wishcrate.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+
+/**
+ * Grid/card view of a product, built directly by JPQL constructor expressions so listing
+ * pages never hydrate Product entities or their lazy collections.
+ */
+@JsonFilter(ProductFields.FILTER_ID)
+public class ProductListingDTO {
+    private Long id;
+    private String name;
+    private BigDecimal price;
+    private BigDecimal discountPrice;
+    private Integer stockQuantity;
+    private String brand;
+    private String imageUrl;
+    private List<String> images;
+    private Long categoryId;
+    private String categoryName;
+    private Double averageRating;
+    private Integer totalReviews;
+    private boolean featured;
+
+    public ProductListingDTO() {}
+
+    public ProductListingDTO(Long id, String name, BigDecimal price, BigDecimal discountPrice,
+                             Integer stockQuantity, String brand, String imageUrl, String firstImage,
+                             Long categoryId, String categoryName, Double averageRating,
+                             Integer totalReviews, boolean featured) {
+        this.id = id;
+        this.name = name;
+        this.price = price;
+        this.discountPrice = discountPrice;
+        this.stockQuantity = stockQuantity;
+        this.brand = brand;
+        this.imageUrl = imageUrl;
+        this.images = firstImage != null ? List.of(firstImage) : List.of();
+        this.categoryId = categoryId;
+        this.categoryName = categoryName;
+        this.averageRating = averageRating;
+        this.totalReviews = totalReviews;
+        this.featured = featured;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public BigDecimal getPrice() { return price; }
+    public void setPrice(BigDecimal price) { this.price = price; }
+
+    public BigDecimal getDiscountPrice() { return discountPrice; }
+    public void setDiscountPrice(BigDecimal discountPrice) { this.discountPrice = discountPrice; }
+
+    public Integer getStockQuantity() { return stockQuantity; }
+    public void setStockQuantity(Integer stockQuantity) { this.stockQuantity = stockQuantity; }
+
+    public String getBrand() { return brand; }
+    public void setBrand(String brand) { this.brand = brand; }
+
+    public String getImageUrl() { return imageUrl; }
+    public void setImageUrl(String imageUrl) { this.imageUrl = imageUrl; }
+
+    public List<String> getImages() { return images; }
+    public void setImages(List<String> images) { this.images = images; }
+
+    public Long getCategoryId() { return categoryId; }
+    public void setCategoryId(Long categoryId) { this.categoryId = categoryId; }
+
+    public String getCategoryName() { return categoryName; }
+    public void setCategoryName(String categoryName) { this.categoryName = categoryName; }
+
+    public Double getAverageRating() { return averageRating; }
+    public void setAverageRating(Double averageRating) { this.averageRating = averageRating; }
+
+    public Integer getTotalReviews() { return totalReviews; }
+    public void setTotalReviews(Integer totalReviews) { this.totalReviews = totalReviews; }
+
+    public boolean isFeatured() { return featured; }
+    public void setFeatured(boolean featured) { this.featured = featured; }
+}
@@ -0,0 +1,24 @@
+package com.wishcrate.dto;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.domain.Page;
+
+public class ProductQueryResponse {
+    private Page<ProductListingDTO> products;
+    private Map<String, List<FacetCountDTO>> facets;
+
+    public ProductQueryResponse() {}
+
+    public ProductQueryResponse(Page<ProductListingDTO> products, Map<String, List<FacetCountDTO>> facets) {
+        this.products = products;
+        this.facets = facets;
+    }
+
+    public Page<ProductListingDTO> getProducts() { return products; }
+    public void setProducts(Page<ProductListingDTO> products) { this.products = products; }
+
+    public Map<String, List<FacetCountDTO>> getFacets() { return facets; }
+    public void setFacets(Map<String, List<FacetCountDTO>> facets) { this.facets = facets; }
+}
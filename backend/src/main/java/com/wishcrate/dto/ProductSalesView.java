@@ -0,0 +1,9 @@
+package com.wishcrate.dto;
+
+/**
+ * Units sold per product, summed over order items of orders that were not cancelled.
+ */
+public interface ProductSalesView {
+    Long getProductId();
+    Long getUnitsSold();
+}
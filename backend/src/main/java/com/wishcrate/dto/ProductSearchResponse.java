@@ -0,0 +1,21 @@
+package com.wishcrate.dto;
+
+import org.springframework.data.domain.Page;
+
+public class ProductSearchResponse {
+    private Page<ProductListingDTO> products;
+    private String didYouMean;
+
+    public ProductSearchResponse() {}
+
+    public ProductSearchResponse(Page<ProductListingDTO> products, String didYouMean) {
+        this.products = products;
+        this.didYouMean = didYouMean;
+    }
+
+    public Page<ProductListingDTO> getProducts() { return products; }
+    public void setProducts(Page<ProductListingDTO> products) { this.products = products; }
+
+    public String getDidYouMean() { return didYouMean; }
+    public void setDidYouMean(String didYouMean) { this.didYouMean = didYouMean; }
+}
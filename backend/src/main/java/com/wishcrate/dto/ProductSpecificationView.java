@@ -0,0 +1,10 @@
+package com.wishcrate.dto;
+
+/**
+ * One entry of a product's specification map.
+ */
+public interface ProductSpecificationView {
+    Long getProductId();
+    String getSpecKey();
+    String getSpecValue();
+}
@@ -0,0 +1,30 @@
+package com.wishcrate.dto;
+
+public class RateLimitStatsDTO {
+    private long limitedByAddress;
+    private long limitedByAccount;
+    
+    public RateLimitStatsDTO() {
+    }
+    
+    public RateLimitStatsDTO(long limitedByAddress, long limitedByAccount) {
+        this.limitedByAddress = limitedByAddress;
+        this.limitedByAccount = limitedByAccount;
+    }
+    
+    public long getLimitedByAddress() {
+        return limitedByAddress;
+    }
+    
+    public void setLimitedByAddress(long limitedByAddress) {
+        this.limitedByAddress = limitedByAddress;
+    }
+    
+    public long getLimitedByAccount() {
+        return limitedByAccount;
+    }
+    
+    public void setLimitedByAccount(long limitedByAccount) {
+        this.limitedByAccount = limitedByAccount;
+    }
+}
@@ -0,0 +1,15 @@
+package com.wishcrate.event;
+
+/**
+ * Published after a category is created, renamed, moved or deleted.
+ */
+public class CategoryChangedEvent {
+
+    private final Long categoryId;
+
+    public CategoryChangedEvent(Long categoryId) {
+        this.categoryId = categoryId;
+    }
+
+    public Long getCategoryId() { return categoryId; }
+}
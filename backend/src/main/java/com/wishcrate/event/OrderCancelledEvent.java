@@ -0,0 +1,21 @@
+package com.wishcrate.event;
+
+import java.util.Map;
+
+/**
+ * Published when an order is cancelled, with the units returned per product id.
+ */
+public class OrderCancelledEvent {
+
+    private final Long orderId;
+    private final Map<Long, Integer> quantities;
+
+    public OrderCancelledEvent(Long orderId, Map<Long, Integer> quantities) {
+        this.orderId = orderId;
+        this.quantities = Map.copyOf(quantities);
+    }
+
+    public Long getOrderId() { return orderId; }
+
+    public Map<Long, Integer> getQuantities() { return quantities; }
+}
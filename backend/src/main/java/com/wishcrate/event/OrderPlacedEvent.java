@@ -0,0 +1,25 @@
+package com.wishcrate.event;
+
+import java.util.Map;
+
+/**
+ * Published when an order is created, with the ordering user and the units ordered per product id.
+ */
+public class OrderPlacedEvent {
+
+    private final Long orderId;
+    private final Long userId;
+    private final Map<Long, Integer> quantities;
+
+    public OrderPlacedEvent(Long orderId, Long userId, Map<Long, Integer> quantities) {
+        this.orderId = orderId;
+        this.userId = userId;
+        this.quantities = Map.copyOf(quantities);
+    }
+
+    public Long getOrderId() { return orderId; }
+
+    public Long getUserId() { return userId; }
+
+    public Map<Long, Integer> getQuantities() { return quantities; }
+}
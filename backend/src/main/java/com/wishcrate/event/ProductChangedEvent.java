@@ -0,0 +1,24 @@
+package com.wishcrate.event;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Published whenever products are created, updated, deactivated or have their stock changed.
+ * Listeners run after the surrounding transaction commits so in-memory views never see
+ * uncommitted state.
+ */
+public class ProductChangedEvent {
+
+    private final List<Long> productIds;
+
+    public ProductChangedEvent(Collection<Long> productIds) {
+        this.productIds = List.copyOf(productIds);
+    }
+
+    public static ProductChangedEvent of(Long productId) {
+        return new ProductChangedEvent(List.of(productId));
+    }
+
+    public List<Long> getProductIds() { return productIds; }
+}
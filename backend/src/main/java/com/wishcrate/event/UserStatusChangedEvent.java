@@ -0,0 +1,15 @@
+package com.wishcrate.event;
+
+/**
+ * Published after a user account is enabled or disabled.
+ */
+public class UserStatusChangedEvent {
+
+    private final Long userId;
+
+    public UserStatusChangedEvent(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getUserId() { return userId; }
+}
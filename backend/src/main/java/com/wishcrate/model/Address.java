@@ -1,5 +1,7 @@
 package com.wishcrate.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import jakarta.persistence.*;
 
 @Entity
@@ -38,6 +40,7 @@ public class Address {
     @Enumerated(EnumType.STRING)
     private AddressType type = AddressType.HOME;
     
+    @JsonIgnore
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User user;
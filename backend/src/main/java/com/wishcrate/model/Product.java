@@ -55,6 +55,9 @@ public class Product {
     @ElementCollection
     private List<String> images = new ArrayList<>();
     
+    // First entry of images, kept alongside it because the collection table has no order column
+    private String primaryImage;
+    
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "category_id")
     private Category category;
@@ -118,6 +121,7 @@ public class Product {
         this.stockQuantity = stockQuantity;
         this.brand = brand;
         this.images = images != null ? images : new ArrayList<>();
+        this.primaryImage = firstOf(this.images);
         this.category = category;
         this.reviews = reviews != null ? reviews : new ArrayList<>();
         this.averageRating = averageRating != null ? averageRating : 0.0;
@@ -154,7 +158,12 @@ public class Product {
     public void setBrand(String brand) { this.brand = brand; }
     
     public List<String> getImages() { return images; }
-    public void setImages(List<String> images) { this.images = images; }
+    public void setImages(List<String> images) {
+        this.images = images;
+        this.primaryImage = firstOf(images);
+    }
+    
+    public String getPrimaryImage() { return primaryImage; }
     
     public Category getCategory() { return category; }
     public void setCategory(Category category) { this.category = category; }
@@ -192,6 +201,10 @@ public class Product {
     public LocalDateTime getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
     
+    private static String firstOf(List<String> images) {
+        return images == null || images.isEmpty() ? null : images.get(0);
+    }
+    
     // Builder Pattern
     public static ProductBuilder builder() {
         return new ProductBuilder();
@@ -0,0 +1,58 @@
+package com.wishcrate.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "revoked_tokens", indexes = @Index(name = "idx_revoked_tokens_expires_at", columnList = "expiresAt"))
+public class RevokedToken {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false, unique = true, length = 64)
+    private String jti;
+    
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+    
+    // Constructors
+    public RevokedToken() {}
+    
+    public RevokedToken(Long id, String jti, LocalDateTime expiresAt) {
+        this.id = id;
+        this.jti = jti;
+        this.expiresAt = expiresAt;
+    }
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public String getJti() { return jti; }
+    public void setJti(String jti) { this.jti = jti; }
+    
+    public LocalDateTime getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; }
+    
+    // Builder Pattern
+    public static RevokedTokenBuilder builder() {
+        return new RevokedTokenBuilder();
+    }
+    
+    public static class RevokedTokenBuilder {
+        private Long id;
+        private String jti;
+        private LocalDateTime expiresAt;
+        
+        public RevokedTokenBuilder id(Long id) { this.id = id; return this; }
+        public RevokedTokenBuilder jti(String jti) { this.jti = jti; return this; }
+        public RevokedTokenBuilder expiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; return this; }
+        
+        public RevokedToken build() {
+            return new RevokedToken(id, jti, expiresAt);
+        }
+    }
+}
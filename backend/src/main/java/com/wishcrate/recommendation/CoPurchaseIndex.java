@@ -0,0 +1,246 @@
+package com.wishcrate.recommendation;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.sql.DataSource;
+
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.wishcrate.dto.ProductIndexView;
+import com.wishcrate.event.OrderPlacedEvent;
+import com.wishcrate.search.ProductIndex;
+import com.wishcrate.util.JdbcStreaming;
+
+/**
+ * Sparse product-by-product matrix counting how many orders contained both products. Each
+ * product's row keeps its own top-K list up to date as counts change, so "frequently bought
+ * together" is a copy of at most K ids. Rows that grow past the pair cap drop their rarest pairs.
+ */
+@Component
+public class CoPurchaseIndex implements ProductIndex, SmartInitializingSingleton {
+    
+    private static final Logger log = LoggerFactory.getLogger(CoPurchaseIndex.class);
+    
+    // Cancelled orders are included: the basket still shows what goes together, and counts are
+    // never decremented because a pruned pair can't be subtracted exactly
+    private static final String ORDER_ITEMS_SQL =
+            "SELECT order_id, product_id FROM order_items WHERE product_id IS NOT NULL ORDER BY order_id";
+    
+    private final DataSource dataSource;
+    private final int topK;
+    private final int maxPairsPerProduct;
+    private final int maxBasketSize;
+    
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Row> rows = new HashMap<>();
+    private final Roaring64Bitmap activeProducts = new Roaring64Bitmap();
+    
+    public CoPurchaseIndex(DataSource dataSource,
+                           @Value("${app.recommendations.top-k:20}") int topK,
+                           @Value("${app.recommendations.max-pairs-per-product:500}") int maxPairsPerProduct,
+                           @Value("${app.recommendations.max-basket-size:50}") int maxBasketSize) {
+        this.dataSource = dataSource;
+        this.topK = topK;
+        this.maxPairsPerProduct = Math.max(maxPairsPerProduct, topK);
+        this.maxBasketSize = maxBasketSize;
+    }
+    
+    /**
+     * Counts every existing order in one forward-only pass over order_items. Runs before the web
+     * server accepts requests, so no order is counted twice or missed.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        long orders = 0;
+        lock.writeLock().lock();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = JdbcStreaming.prepareForwardOnly(connection, ORDER_ITEMS_SQL)) {
+            try (ResultSet rs = statement.executeQuery()) {
+                List<Long> basket = new ArrayList<>();
+                long currentOrder = -1;
+                while (rs.next()) {
+                    long orderId = rs.getLong(1);
+                    if (orderId != currentOrder) {
+                        orders += record(basket) ? 1 : 0;
+                        basket.clear();
+                        currentOrder = orderId;
+                    }
+                    basket.add(rs.getLong(2));
+                }
+                orders += record(basket) ? 1 : 0;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to load order history for recommendations", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Loaded co-purchases from {} orders for {} products", orders, rows.size());
+    }
+    
+    @Override
+    public void index(ProductIndexView product) {
+        lock.writeLock().lock();
+        try {
+            activeProducts.addLong(product.getId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public void remove(Long productId) {
+        // The product's pairs stay counted in case it is reactivated; it is only skipped
+        lock.writeLock().lock();
+        try {
+            activeProducts.removeLong(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public void onLoaded() {
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        lock.writeLock().lock();
+        try {
+            record(event.getQuantities().keySet());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Active products most often ordered together with {@code productId}, most frequent first.
+     */
+    public List<Long> frequentlyBoughtWith(Long productId, int limit) {
+        lock.readLock().lock();
+        try {
+            Row row = rows.get(productId);
+            if (row == null) {
+                return List.of();
+            }
+            List<Long> ids = new ArrayList<>(Math.min(limit, row.topSize));
+            for (int i = 0; i < row.topSize && ids.size() < limit; i++) {
+                if (activeProducts.contains(row.topIds[i])) {
+                    ids.add(row.topIds[i]);
+                }
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public int getTopK() {
+        return topK;
+    }
+    
+    // Caller holds the write lock. Returns whether the basket had at least one pair.
+    private boolean record(Collection<Long> basket) {
+        long[] ids = basket.stream().mapToLong(Long::longValue).distinct().sorted().toArray();
+        if (ids.length < 2) {
+            return false;
+        }
+        // Bulk orders would add pairs quadratically while saying little about each pair
+        if (ids.length > maxBasketSize) {
+            ids = Arrays.copyOf(ids, maxBasketSize);
+        }
+        for (long id : ids) {
+            Row row = rows.computeIfAbsent(id, key -> new Row());
+            for (long other : ids) {
+                if (other != id) {
+                    row.increment(other);
+                }
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * One product's co-purchase counts and their top-K, highest count first. Every pair outside
+     * the top list has a count no higher than the top list's last entry.
+     */
+    private final class Row {
+        private final LongIntHashMap counts = new LongIntHashMap(4);
+        private long[] topIds = new long[4];
+        private int[] topCounts = new int[4];
+        private int topSize;
+    
+        private void increment(long other) {
+            int count = counts.addTo(other, 1);
+            offer(other, count);
+            if (counts.size() > maxPairsPerProduct) {
+                prune();
+            }
+        }
+    
+        private void offer(long other, int count) {
+            int position = -1;
+            for (int i = 0; i < topSize; i++) {
+                if (topIds[i] == other) {
+                    position = i;
+                    break;
+                }
+            }
+            if (position < 0) {
+                if (topSize < topK) {
+                    if (topSize == topIds.length) {
+                        int capacity = Math.min(topIds.length * 2, topK);
+                        topIds = Arrays.copyOf(topIds, capacity);
+                        topCounts = Arrays.copyOf(topCounts, capacity);
+                    }
+                    position = topSize++;
+                } else if (count > topCounts[topSize - 1]) {
+                    position = topSize - 1;
+                } else {
+                    return;
+                }
+                topIds[position] = other;
+            }
+            topCounts[position] = count;
+            // Counts only grow, so an entry can only move towards the front
+            while (position > 0 && topCounts[position - 1] < count) {
+                topIds[position] = topIds[position - 1];
+                topCounts[position] = topCounts[position - 1];
+                topIds[position - 1] = other;
+                topCounts[position - 1] = count;
+                position--;
+            }
+        }
+    
+        // Drops the lowest-count pairs outside the top list until the row is back to three quarters
+        // of the cap. Those pairs all count no more than the top list's last entry, so the top list
+        // stays exact.
+        private void prune() {
+            counts.removeLowest(counts.size() - maxPairsPerProduct * 3 / 4, this::inTop);
+        }
+    
+        private boolean inTop(long other) {
+            for (int i = 0; i < topSize; i++) {
+                if (topIds[i] == other) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
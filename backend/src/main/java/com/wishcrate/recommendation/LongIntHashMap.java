@@ -0,0 +1,134 @@
+package com.wishcrate.recommendation;
+
+import java.util.Arrays;
+import java.util.function.LongPredicate;
+
+/**
+ * Open-addressing hash map from long keys to int values that stores both in flat arrays, so
+ * an entry costs 12 bytes rather than two boxed objects and a node. Zero is reserved as the
+ * empty-slot marker and can't be used as a key; product ids start at one.
+ */
+final class LongIntHashMap {
+    
+    private static final float LOAD_FACTOR = 0.6f;
+    
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+    private int resizeAt;
+    
+    LongIntHashMap(int expectedSize) {
+        allocate(tableSize(expectedSize));
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    /**
+     * Adds {@code delta} to the key's value, inserting it at zero first if absent, and returns
+     * the new value.
+     */
+    int addTo(long key, int delta) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Zero is not a valid key");
+        }
+        int slot = slot(key);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return values[slot] += delta;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = delta;
+        if (++size >= resizeAt) {
+            rehash(keys.length * 2);
+        }
+        return delta;
+    }
+    
+    /**
+     * Removes the {@code count} entries with the lowest values, never removing a key that
+     * {@code retained} accepts; ties are broken arbitrarily. Returns how many were removed.
+     */
+    int removeLowest(int count, LongPredicate retained) {
+        int[] candidates = new int[size];
+        int candidateCount = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0 && !retained.test(keys[i])) {
+                candidates[candidateCount++] = values[i];
+            }
+        }
+        count = Math.min(count, candidateCount);
+        if (count <= 0) {
+            return 0;
+        }
+        Arrays.sort(candidates, 0, candidateCount);
+        int threshold = candidates[count - 1];
+        int below = 0;
+        while (candidates[below] < threshold) {
+            below++;
+        }
+        int tiesToRemove = count - below;
+    
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(tableSize(size - count));
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key == 0) {
+                continue;
+            }
+            int value = oldValues[i];
+            if (value <= threshold && !retained.test(key) && (value < threshold || tiesToRemove-- > 0)) {
+                continue;
+            }
+            insertNew(key, value);
+        }
+        return count;
+    }
+    
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                insertNew(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+    
+    private void insertNew(long key, int value) {
+        int slot = slot(key);
+        while (keys[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+    }
+    
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+        size = 0;
+    }
+    
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+    
+    private static int tableSize(int expectedSize) {
+        int capacity = 4;
+        while (capacity * LOAD_FACTOR <= expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
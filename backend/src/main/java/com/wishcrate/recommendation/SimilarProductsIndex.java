@@ -0,0 +1,354 @@
+package com.wishcrate.recommendation;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.wishcrate.dto.ProductIndexView;
+import com.wishcrate.event.ProductChangedEvent;
+import com.wishcrate.search.ProductIndex;
+import com.wishcrate.util.JdbcStreaming;
+
+/**
+ * Finds similar products by MinHash over each product's name words, brand, category and
+ * specifications, bucketed with locality-sensitive hashing. A lookup only scores the products
+ * sharing at least one band with it, so the cost is bounded by the bucket sizes rather than
+ * the catalog size.
+ */
+@Component
+public class SimilarProductsIndex implements ProductIndex, SmartInitializingSingleton {
+    
+    private static final Logger log = LoggerFactory.getLogger(SimilarProductsIndex.class);
+    
+    // 16 bands of 4 rows: pairs above roughly 0.5 Jaccard similarity are likely to share a band
+    private static final int BANDS = 16;
+    private static final int ROWS = 4;
+    private static final int SIGNATURE_LENGTH = BANDS * ROWS;
+    private static final double MIN_SIMILARITY = 0.2;
+    
+    private static final String ALL_SPECIFICATIONS_SQL =
+            "SELECT product_id, spec_key, spec_value FROM product_specifications ORDER BY product_id";
+    private static final String SPECIFICATIONS_SQL =
+            "SELECT product_id, spec_key, spec_value FROM product_specifications WHERE product_id IN (:ids)";
+    
+    private final DataSource dataSource;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final int maxBucketSize;
+    private final long[] seeds = new long[SIGNATURE_LENGTH];
+    
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, int[]> signatures = new HashMap<>();
+    private final Map<Long, Bucket> buckets = new HashMap<>();
+    // Specification features read ahead of index() calls, consumed by them
+    private final Map<Long, long[]> pendingSpecifications = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+    
+    public SimilarProductsIndex(DataSource dataSource, JdbcTemplate jdbcTemplate,
+                                @Value("${app.recommendations.max-bucket-size:200}") int maxBucketSize) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.maxBucketSize = maxBucketSize;
+        SplittableRandom random = new SplittableRandom(0x5EED);
+        for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+            seeds[i] = random.nextLong();
+        }
+    }
+    
+    /**
+     * Reads every product's specifications in one forward-only pass, ahead of the catalog load
+     * that indexes the products themselves.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = JdbcStreaming.prepareForwardOnly(connection, ALL_SPECIFICATIONS_SQL)) {
+            try (ResultSet rs = statement.executeQuery()) {
+                Set<Long> features = new HashSet<>();
+                long currentProduct = -1;
+                while (rs.next()) {
+                    long productId = rs.getLong(1);
+                    if (productId != currentProduct) {
+                        flushSpecifications(currentProduct, features);
+                        currentProduct = productId;
+                    }
+                    addSpecification(features, rs.getString(2), rs.getString(3));
+                }
+                flushSpecifications(currentProduct, features);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to load product specifications for similarity", e);
+        }
+        log.info("Loaded specifications of {} products for similarity", pendingSpecifications.size());
+    }
+    
+    /**
+     * Reads the specifications of changed products in one query before the catalog indexer
+     * passes them to {@link #index}.
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        pendingSpecifications.putAll(loadSpecifications(event.getProductIds()));
+    }
+    
+    @Override
+    public void index(ProductIndexView product) {
+        long[] specifications = pendingSpecifications.remove(product.getId());
+        if (specifications == null && !loaded) {
+            // The startup read-ahead only records products that have specifications
+            specifications = new long[0];
+        } else if (specifications == null) {
+            // Changed between the read-ahead and the indexer's read; fetch it on its own
+            specifications = loadSpecifications(List.of(product.getId())).getOrDefault(product.getId(), new long[0]);
+        }
+        Set<Long> features = new HashSet<>();
+        for (long feature : specifications) {
+            features.add(feature);
+        }
+        addWords(features, "n:", product.getName());
+        if (product.getBrand() != null && !product.getBrand().isBlank()) {
+            features.add(hash("b:" + product.getBrand().trim().toLowerCase(Locale.ROOT)));
+        }
+        if (product.getCategoryId() != null) {
+            features.add(hash("c:" + product.getCategoryId()));
+        }
+        int[] signature = features.isEmpty() ? null : signature(features);
+        
+        lock.writeLock().lock();
+        try {
+            unbucket(product.getId());
+            if (signature != null) {
+                signatures.put(product.getId(), signature);
+                for (int band = 0; band < BANDS; band++) {
+                    buckets.computeIfAbsent(bandKey(signature, band), key -> new Bucket()).add(product.getId());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public void remove(Long productId) {
+        pendingSpecifications.remove(productId);
+        lock.writeLock().lock();
+        try {
+            unbucket(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public void onLoaded() {
+        // Specifications of products that turned out to be inactive
+        pendingSpecifications.clear();
+        loaded = true;
+    }
+    
+    /**
+     * Up to {@code limit} products most similar to {@code productId}, most similar first, by
+     * the fraction of matching signature positions (an estimate of Jaccard similarity).
+     */
+    public List<Long> similarTo(Long productId, int limit) {
+        lock.readLock().lock();
+        try {
+            int[] signature = signatures.get(productId);
+            if (signature == null) {
+                return List.of();
+            }
+            Set<Long> seen = new HashSet<>();
+            List<long[]> scored = new ArrayList<>();
+            for (int band = 0; band < BANDS; band++) {
+                Bucket bucket = buckets.get(bandKey(signature, band));
+                if (bucket == null) {
+                    continue;
+                }
+                for (int i = 0; i < bucket.size; i++) {
+                    long candidate = bucket.ids[i];
+                    if (candidate != productId && seen.add(candidate)) {
+                        int matches = matches(signature, signatures.get(candidate));
+                        if (matches >= MIN_SIMILARITY * SIGNATURE_LENGTH) {
+                            scored.add(new long[]{candidate, matches});
+                        }
+                    }
+                }
+            }
+            // Most matches first, then the lower id for a stable order
+            scored.sort((a, b) -> a[1] != b[1] ? Long.compare(b[1], a[1]) : Long.compare(a[0], b[0]));
+            List<Long> ids = new ArrayList<>(Math.min(limit, scored.size()));
+            for (int i = 0; i < scored.size() && i < limit; i++) {
+                ids.add(scored.get(i)[0]);
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // Caller holds the write lock
+    private void unbucket(Long productId) {
+        int[] previous = signatures.remove(productId);
+        if (previous == null) {
+            return;
+        }
+        for (int band = 0; band < BANDS; band++) {
+            long key = bandKey(previous, band);
+            Bucket bucket = buckets.get(key);
+            if (bucket != null && bucket.remove(productId) && bucket.size == 0) {
+                buckets.remove(key);
+            }
+        }
+    }
+    
+    private Map<Long, long[]> loadSpecifications(Collection<Long> productIds) {
+        Map<Long, Set<Long>> features = new HashMap<>();
+        jdbcTemplate.query(SPECIFICATIONS_SQL, new MapSqlParameterSource("ids", productIds), rs -> {
+            addSpecification(features.computeIfAbsent(rs.getLong(1), id -> new HashSet<>()),
+                    rs.getString(2), rs.getString(3));
+        });
+        Map<Long, long[]> result = new HashMap<>();
+        for (Long productId : productIds) {
+            Set<Long> productFeatures = features.get(productId);
+            result.put(productId, productFeatures != null ? toArray(productFeatures) : new long[0]);
+        }
+        return result;
+    }
+    
+    private void flushSpecifications(long productId, Set<Long> features) {
+        if (productId >= 0 && !features.isEmpty()) {
+            pendingSpecifications.put(productId, toArray(features));
+        }
+        features.clear();
+    }
+    
+    // A key alone says what kind of product it is; key and value together say how it's configured
+    private static void addSpecification(Set<Long> features, String key, String value) {
+        if (key == null || key.isBlank()) {
+            return;
+        }
+        String normalizedKey = key.trim().toLowerCase(Locale.ROOT);
+        features.add(hash("k:" + normalizedKey));
+        if (value != null && !value.isBlank()) {
+            features.add(hash("s:" + normalizedKey + "=" + value.trim().toLowerCase(Locale.ROOT)));
+        }
+    }
+    
+    private static void addWords(Set<Long> features, String prefix, String text) {
+        if (text == null) {
+            return;
+        }
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (word.length() > 1) {
+                features.add(hash(prefix + word));
+            }
+        }
+    }
+    
+    private int[] signature(Set<Long> features) {
+        int[] signature = new int[SIGNATURE_LENGTH];
+        for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+            long min = Long.MAX_VALUE;
+            for (long feature : features) {
+                min = Math.min(min, mix(feature ^ seeds[i]));
+            }
+            signature[i] = (int) (min >>> 32);
+        }
+        return signature;
+    }
+    
+    private static long bandKey(int[] signature, int band) {
+        long h = band;
+        for (int i = band * ROWS; i < (band + 1) * ROWS; i++) {
+            h = mix(h * 31 + signature[i]);
+        }
+        return h;
+    }
+    
+    private static int matches(int[] a, int[] b) {
+        int matches = 0;
+        for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+            if (a[i] == b[i]) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+    
+    // FNV-1a over the characters, finished with the mixer for better high bits
+    private static long hash(String feature) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < feature.length(); i++) {
+            h ^= feature.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+    
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+    
+    private static long[] toArray(Set<Long> features) {
+        return features.stream().mapToLong(Long::longValue).toArray();
+    }
+    
+    /**
+     * Product ids sharing one band value. A bucket stops accepting members once full: a band
+     * shared by that many products says too little to be worth scanning on every lookup.
+     */
+    private final class Bucket {
+        private long[] ids = new long[2];
+        private int size;
+    
+        private void add(long productId) {
+            if (size == maxBucketSize) {
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, Math.min(ids.length * 2, maxBucketSize));
+            }
+            ids[size++] = productId;
+        }
+    
+        private boolean remove(long productId) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == productId) {
+                    ids[i] = ids[--size];
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.wishcrate.repository;
 
+import com.wishcrate.dto.CategoryNodeView;
 import com.wishcrate.model.Category;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -12,4 +14,8 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
     Optional<Category> findByName(String name);
     List<Category> findByParentIsNull();
     List<Category> findByParentId(Long parentId);
+    
+    @Query("SELECT c.id AS id, c.name AS name, c.imageUrl AS imageUrl, parent.id AS parentId " +
+           "FROM Category c LEFT JOIN c.parent parent")
+    List<CategoryNodeView> findAllNodes();
 }
@@ -1,12 +1,16 @@
 package com.wishcrate.repository;
 
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.wishcrate.dto.ProductSalesView;
 import com.wishcrate.model.Order;
 
 @Repository
@@ -15,4 +19,8 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     Page<Order> findByUserId(Long userId, Pageable pageable);
     Page<Order> findByStatus(Order.OrderStatus status, Pageable pageable);
     long countByStatus(Order.OrderStatus status);
+    
+    @Query("SELECT oi.product.id AS productId, SUM(oi.quantity) AS unitsSold FROM OrderItem oi " +
+           "WHERE oi.order.status <> :excluded GROUP BY oi.product.id")
+    List<ProductSalesView> sumUnitsSoldByProduct(@Param("excluded") Order.OrderStatus excluded);
 }
@@ -1,6 +1,7 @@
 package com.wishcrate.repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.domain.Page;
@@ -10,10 +11,21 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.wishcrate.dto.ProductImageView;
+import com.wishcrate.dto.ProductIndexView;
+import com.wishcrate.dto.ProductListingDTO;
+import com.wishcrate.dto.ProductSpecificationView;
 import com.wishcrate.model.Product;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
+    
+    // Listing rows: card columns, category name and one image per product in a single statement
+    String LISTING_SELECT = "SELECT new com.wishcrate.dto.ProductListingDTO(p.id, p.name, p.price, " +
+            "p.discountPrice, p.stockQuantity, p.brand, p.imageUrl, " +
+            "p.primaryImage, " +
+            "c.id, c.name, p.averageRating, p.totalReviews, p.featured) " +
+            "FROM Product p LEFT JOIN p.category c ";
     
     Page<Product> findByActiveTrue(Pageable pageable);
     
@@ -38,4 +50,60 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     Page<Product> findTopRatedProducts(Pageable pageable);
     
     long countByActiveTrue();
+    
+    @Query(value = LISTING_SELECT + "WHERE p.active = true",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.active = true")
+    Page<ProductListingDTO> findListingsByActiveTrue(Pageable pageable);
+    
+    @Query(value = LISTING_SELECT + "WHERE p.active = true AND p.category.id IN :categoryIds",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.active = true AND p.category.id IN :categoryIds")
+    Page<ProductListingDTO> findListingsByCategoryIdIn(@Param("categoryIds") Collection<Long> categoryIds,
+                                                       Pageable pageable);
+    
+    @Query(value = LISTING_SELECT + "WHERE p.active = true AND p.price BETWEEN :minPrice AND :maxPrice",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.active = true AND p.price BETWEEN :minPrice AND :maxPrice")
+    Page<ProductListingDTO> findListingsByPriceRange(@Param("minPrice") BigDecimal minPrice,
+                                                     @Param("maxPrice") BigDecimal maxPrice,
+                                                     Pageable pageable);
+    
+    @Query(value = LISTING_SELECT + "WHERE p.active = true AND " +
+           "(LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
+           "LOWER(p.description) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
+           "LOWER(p.brand) LIKE LOWER(CONCAT('%', :keyword, '%')))",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.active = true AND " +
+           "(LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
+           "LOWER(p.description) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
+           "LOWER(p.brand) LIKE LOWER(CONCAT('%', :keyword, '%')))")
+    Page<ProductListingDTO> searchListings(@Param("keyword") String keyword, Pageable pageable);
+    
+    @Query(LISTING_SELECT + "WHERE p.featured = true AND p.active = true ORDER BY p.id DESC")
+    List<ProductListingDTO> findFeaturedListings();
+    
+    @Query(LISTING_SELECT + "WHERE p.id IN :ids")
+    List<ProductListingDTO> findListingsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Query("SELECT p.id AS id, p.name AS name, p.brand AS brand, p.description AS description, " +
+           "c.id AS categoryId, c.name AS categoryName, p.price AS price, p.discountPrice AS discountPrice, " +
+           "p.stockQuantity AS stockQuantity, p.averageRating AS averageRating, p.totalReviews AS totalReviews, " +
+           "p.featured AS featured, p.active AS active " +
+           "FROM Product p LEFT JOIN p.category c WHERE p.active = true AND p.id > :afterId ORDER BY p.id")
+    List<ProductIndexView> findIndexViewsAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    @Query("SELECT p.id AS id, p.name AS name, p.brand AS brand, p.description AS description, " +
+           "c.id AS categoryId, c.name AS categoryName, p.price AS price, p.discountPrice AS discountPrice, " +
+           "p.stockQuantity AS stockQuantity, p.averageRating AS averageRating, p.totalReviews AS totalReviews, " +
+           "p.featured AS featured, p.active AS active " +
+           "FROM Product p LEFT JOIN p.category c WHERE p.id IN :ids")
+    List<ProductIndexView> findIndexViewsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Query("SELECT p.id FROM Product p WHERE p.category.id IN :categoryIds")
+    List<Long> findIdsByCategoryIdIn(@Param("categoryIds") Collection<Long> categoryIds);
+    
+    // Collections of many products at once, each loaded on its own to avoid a cartesian product
+    @Query("SELECT p.id AS productId, img AS image FROM Product p JOIN p.images img WHERE p.id IN :ids")
+    List<ProductImageView> findImagesByProductIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Query("SELECT p.id AS productId, KEY(s) AS specKey, VALUE(s) AS specValue " +
+           "FROM Product p JOIN p.specifications s WHERE p.id IN :ids")
+    List<ProductSpecificationView> findSpecificationsByProductIdIn(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,27 @@
+package com.wishcrate.repository;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+
+import com.wishcrate.dto.ProductCursor;
+import com.wishcrate.dto.ProductDTO;
+import com.wishcrate.dto.ProductFields;
+import com.wishcrate.dto.ProductListingDTO;
+
+public interface ProductRepositoryCustom {
+    
+    /**
+     * Keyset page of active products strictly after the cursor position, optionally restricted
+     * to a category and/or price range. Seeks on (sortKey, id) instead of skipping rows, so
+     * the cost does not grow with page depth.
+     */
+    List<ProductListingDTO> findActiveAfter(ProductCursor cursor, Collection<Long> categoryIds,
+                                            BigDecimal minPrice, BigDecimal maxPrice, int limit);
+    
+    /**
+     * Products with only the requested scalar fields read and set; the image and specification
+     * collections are left null for the caller to load if wanted.
+     */
+    List<ProductDTO> findDetailsByIdIn(Collection<Long> ids, ProductFields fields);
+}
@@ -0,0 +1,143 @@
+package com.wishcrate.repository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.wishcrate.dto.ProductCursor;
+import com.wishcrate.dto.ProductDTO;
+import com.wishcrate.dto.ProductFields;
+import com.wishcrate.dto.ProductListingDTO;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+    
+    // Scalar ProductDTO fields and the JPQL expressions they are read from
+    private static final Map<String, String> DETAIL_COLUMNS = new LinkedHashMap<>();
+    
+    static {
+        DETAIL_COLUMNS.put("id", "p.id");
+        DETAIL_COLUMNS.put("name", "p.name");
+        DETAIL_COLUMNS.put("description", "p.description");
+        DETAIL_COLUMNS.put("price", "p.price");
+        DETAIL_COLUMNS.put("discountPrice", "p.discountPrice");
+        DETAIL_COLUMNS.put("stockQuantity", "p.stockQuantity");
+        DETAIL_COLUMNS.put("brand", "p.brand");
+        DETAIL_COLUMNS.put("categoryId", "c.id");
+        DETAIL_COLUMNS.put("categoryName", "c.name");
+        DETAIL_COLUMNS.put("averageRating", "p.averageRating");
+        DETAIL_COLUMNS.put("totalReviews", "p.totalReviews");
+        DETAIL_COLUMNS.put("sku", "p.sku");
+        DETAIL_COLUMNS.put("featured", "p.featured");
+        DETAIL_COLUMNS.put("active", "p.active");
+        DETAIL_COLUMNS.put("imageUrl", "p.imageUrl");
+    }
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Override
+    public List<ProductListingDTO> findActiveAfter(ProductCursor cursor, Collection<Long> categoryIds,
+                                                   BigDecimal minPrice, BigDecimal maxPrice, int limit) {
+        // Sort keys are whitelisted by ProductCursor, so it is safe to splice them into the query
+        String key = "p." + cursor.getSortBy();
+        String comparison = cursor.isAscending() ? ">" : "<";
+        String direction = cursor.isAscending() ? "ASC" : "DESC";
+        
+        StringBuilder jpql = new StringBuilder(ProductRepository.LISTING_SELECT).append("WHERE p.active = true");
+        if (categoryIds != null) {
+            jpql.append(" AND p.category.id IN :categoryIds");
+        }
+        if (minPrice != null && maxPrice != null) {
+            jpql.append(" AND p.price BETWEEN :minPrice AND :maxPrice");
+        }
+        if (!cursor.isStart()) {
+            if (cursor.getSortBy().equals("id")) {
+                jpql.append(" AND p.id ").append(comparison).append(" :lastId");
+            } else {
+                jpql.append(" AND (").append(key).append(' ').append(comparison).append(" :lastValue OR (")
+                        .append(key).append(" = :lastValue AND p.id ").append(comparison).append(" :lastId))");
+            }
+        }
+        jpql.append(" ORDER BY ").append(key).append(' ').append(direction);
+        if (!cursor.getSortBy().equals("id")) {
+            jpql.append(", p.id ").append(direction);
+        }
+        
+        TypedQuery<ProductListingDTO> query = entityManager.createQuery(jpql.toString(), ProductListingDTO.class);
+        if (categoryIds != null) {
+            query.setParameter("categoryIds", categoryIds);
+        }
+        if (minPrice != null && maxPrice != null) {
+            query.setParameter("minPrice", minPrice);
+            query.setParameter("maxPrice", maxPrice);
+        }
+        if (!cursor.isStart()) {
+            query.setParameter("lastId", cursor.getLastId());
+            if (!cursor.getSortBy().equals("id")) {
+                query.setParameter("lastValue", cursor.getLastValue());
+            }
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+    
+    @Override
+    public List<ProductDTO> findDetailsByIdIn(Collection<Long> ids, ProductFields fields) {
+        // Field names are whitelisted by ProductFields and mapped to fixed expressions here
+        List<String> selected = new ArrayList<>();
+        for (String field : DETAIL_COLUMNS.keySet()) {
+            if (fields.includes(field)) {
+                selected.add(field);
+            }
+        }
+        StringBuilder jpql = new StringBuilder("SELECT ");
+        for (int i = 0; i < selected.size(); i++) {
+            jpql.append(i > 0 ? ", " : "").append(DETAIL_COLUMNS.get(selected.get(i)));
+        }
+        jpql.append(" FROM Product p");
+        if (fields.includes("categoryId") || fields.includes("categoryName")) {
+            jpql.append(" LEFT JOIN p.category c");
+        }
+        jpql.append(" WHERE p.id IN :ids");
+        
+        List<Object[]> rows = entityManager.createQuery(jpql.toString(), Object[].class)
+                .setParameter("ids", ids)
+                .getResultList();
+        List<ProductDTO> products = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            ProductDTO product = new ProductDTO();
+            for (int i = 0; i < selected.size(); i++) {
+                setDetail(product, selected.get(i), row[i]);
+            }
+            products.add(product);
+        }
+        return products;
+    }
+    
+    private static void setDetail(ProductDTO product, String field, Object value) {
+        switch (field) {
+            case "id" -> product.setId((Long) value);
+            case "name" -> product.setName((String) value);
+            case "description" -> product.setDescription((String) value);
+            case "price" -> product.setPrice((BigDecimal) value);
+            case "discountPrice" -> product.setDiscountPrice((BigDecimal) value);
+            case "stockQuantity" -> product.setStockQuantity((Integer) value);
+            case "brand" -> product.setBrand((String) value);
+            case "categoryId" -> product.setCategoryId((Long) value);
+            case "categoryName" -> product.setCategoryName((String) value);
+            case "averageRating" -> product.setAverageRating((Double) value);
+            case "totalReviews" -> product.setTotalReviews((Integer) value);
+            case "sku" -> product.setSku((String) value);
+            case "featured" -> product.setFeatured((Boolean) value);
+            case "active" -> product.setActive((Boolean) value);
+            case "imageUrl" -> product.setImageUrl((String) value);
+            default -> throw new IllegalArgumentException("Unknown product field: " + field);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.wishcrate.search;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.wishcrate.cache.CatalogVersion;
+import com.wishcrate.cache.CategoryHierarchy;
+import com.wishcrate.dto.ProductIndexView;
+import com.wishcrate.event.CategoryChangedEvent;
+import com.wishcrate.event.ProductChangedEvent;
+import com.wishcrate.repository.ProductRepository;
+
+/**
+ * Loads the active catalog into every {@link ProductIndex} at startup and then keeps them in
+ * sync from {@link ProductChangedEvent}s, reading each changed product once for all indexes.
+ * Category renames and moves reach the indexes the same way, as a change to every product
+ * filed under the category or below it.
+ */
+@Component
+public class CatalogIndexer {
+    
+    private static final Logger log = LoggerFactory.getLogger(CatalogIndexer.class);
+    private static final int BATCH_SIZE = 1000;
+    
+    private final ProductRepository productRepository;
+    private final CategoryHierarchy categoryHierarchy;
+    private final CatalogVersion catalogVersion;
+    private final List<ProductIndex> indexes;
+    
+    private final Object loadLock = new Object();
+    private final Set<Long> pendingDuringLoad = new LinkedHashSet<>();
+    private boolean loaded;
+    
+    public CatalogIndexer(ProductRepository productRepository, CategoryHierarchy categoryHierarchy,
+                          CatalogVersion catalogVersion, List<ProductIndex> indexes) {
+        this.productRepository = productRepository;
+        this.categoryHierarchy = categoryHierarchy;
+        this.catalogVersion = catalogVersion;
+        this.indexes = indexes;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadCatalog() {
+        long start = System.currentTimeMillis();
+        long lastId = 0;
+        int count = 0;
+        List<ProductIndexView> batch;
+        do {
+            batch = productRepository.findIndexViewsAfter(lastId, PageRequest.of(0, BATCH_SIZE));
+            for (ProductIndexView product : batch) {
+                for (ProductIndex index : indexes) {
+                    index.index(product);
+                }
+                lastId = product.getId();
+            }
+            count += batch.size();
+        } while (batch.size() == BATCH_SIZE);
+        
+        Set<Long> pending;
+        synchronized (loadLock) {
+            loaded = true;
+            pending = new LinkedHashSet<>(pendingDuringLoad);
+            pendingDuringLoad.clear();
+        }
+        if (!pending.isEmpty()) {
+            refresh(pending);
+        }
+        for (ProductIndex index : indexes) {
+            index.onLoaded();
+        }
+        catalogVersion.catalogLoaded();
+        log.info("Indexed {} active products into {} catalog indexes in {} ms",
+                count, indexes.size(), System.currentTimeMillis() - start);
+    }
+    
+    @Order(0)
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        changed(event.getProductIds());
+    }
+    
+    // Runs after CategoryHierarchy has reloaded, so a move already sees the new subtree
+    @Order(0)
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        List<Long> productIds = productRepository.findIdsByCategoryIdIn(
+                categoryHierarchy.descendantsOf(event.getCategoryId()));
+        if (!productIds.isEmpty()) {
+            changed(productIds);
+        }
+    }
+    
+    private void changed(Collection<Long> productIds) {
+        synchronized (loadLock) {
+            if (!loaded) {
+                // Re-read after the initial load finishes so the load can't overwrite it with older rows
+                pendingDuringLoad.addAll(productIds);
+                return;
+            }
+        }
+        refresh(productIds);
+    }
+    
+    private void refresh(Collection<Long> productIds) {
+        List<Long> chunk = new ArrayList<>(Math.min(productIds.size(), BATCH_SIZE));
+        for (Long productId : productIds) {
+            chunk.add(productId);
+            if (chunk.size() == BATCH_SIZE) {
+                refreshChunk(chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            refreshChunk(chunk);
+        }
+    }
+    
+    private void refreshChunk(List<Long> productIds) {
+        Map<Long, ProductIndexView> found = new HashMap<>();
+        for (ProductIndexView product : productRepository.findIndexViewsByIdIn(productIds)) {
+            found.put(product.getId(), product);
+        }
+        for (Long productId : productIds) {
+            ProductIndexView product = found.get(productId);
+            for (ProductIndex index : indexes) {
+                if (product != null && product.isActive()) {
+                    index.index(product);
+                } else {
+                    index.remove(productId);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,388 @@
+package com.wishcrate.search;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Component;
+
+import com.wishcrate.cache.CategoryHierarchy;
+import com.wishcrate.dto.FacetCountDTO;
+import com.wishcrate.dto.ProductIndexView;
+
+/**
+ * Faceted filtering over the active catalog. Every facet value owns a compressed bitmap of
+ * product ordinals, so filters are bitmap intersections and facet counts are intersection
+ * cardinalities. Counts for a dimension ignore that dimension's own filter (disjunctive
+ * faceting), so users can see how many results each alternative value would give.
+ * A product is filed under its category and every ancestor of it, so a category's bitmap,
+ * filter and count all cover its whole subtree.
+ */
+@Component
+public class FacetIndex implements ProductIndex {
+    
+    public static final String CATEGORY = "category";
+    public static final String BRAND = "brand";
+    public static final String PRICE = "price";
+    public static final String RATING = "rating";
+    public static final String AVAILABILITY = "availability";
+    
+    private static final int[] PRICE_EDGES = {0, 25, 50, 100, 200, 500, 1000};
+    private static final int MAX_BRAND_FACETS = 50;
+    private static final int MAX_RATING = 5;
+    
+    private final CategoryHierarchy categoryHierarchy;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private long[] productIds = new long[1024];
+    private long[][] categoriesOf = new long[1024][];
+    private String[] brandOf = new String[1024];
+    private byte[] priceBucketOf = new byte[1024];
+    private byte[] ratingOf = new byte[1024];
+    private double[] priceOf = new double[1024];
+    private double[] averageRatingOf = new double[1024];
+    private int ordinalCount;
+    private final RoaringBitmap freeOrdinals = new RoaringBitmap();
+    
+    private final RoaringBitmap all = new RoaringBitmap();
+    private final RoaringBitmap inStock = new RoaringBitmap();
+    private final Map<Long, RoaringBitmap> byCategory = new HashMap<>();
+    private final Map<String, RoaringBitmap> byBrand = new HashMap<>();
+    private final Map<String, String> brandLabels = new HashMap<>();
+    private final RoaringBitmap[] byPrice = newBitmaps(PRICE_EDGES.length);
+    private final RoaringBitmap[] byRating = newBitmaps(MAX_RATING + 1);
+    
+    public FacetIndex(CategoryHierarchy categoryHierarchy) {
+        this.categoryHierarchy = categoryHierarchy;
+    }
+    
+    @Override
+    public void index(ProductIndexView product) {
+        BigDecimal effectivePrice = product.getDiscountPrice() != null ? product.getDiscountPrice() : product.getPrice();
+        double price = effectivePrice != null ? effectivePrice.doubleValue() : 0;
+        double rating = product.getAverageRating() != null ? product.getAverageRating() : 0;
+        String brand = product.getBrand() != null && !product.getBrand().isBlank()
+                ? product.getBrand().trim() : null;
+        long[] categories = product.getCategoryId() == null ? null
+                : categoryHierarchy.ancestorsOf(product.getCategoryId()).stream()
+                        .mapToLong(Long::longValue)
+                        .toArray();
+        
+        lock.writeLock().lock();
+        try {
+            Integer existing = ordinals.get(product.getId());
+            int ordinal;
+            if (existing != null) {
+                ordinal = existing;
+                unindex(ordinal);
+            } else {
+                ordinal = allocateOrdinal();
+                ordinals.put(product.getId(), ordinal);
+                productIds[ordinal] = product.getId();
+            }
+            
+            all.add(ordinal);
+            if (product.getStockQuantity() != null && product.getStockQuantity() > 0) {
+                inStock.add(ordinal);
+            }
+            if (categories != null) {
+                categoriesOf[ordinal] = categories;
+                for (long categoryId : categories) {
+                    byCategory.computeIfAbsent(categoryId, id -> new RoaringBitmap()).add(ordinal);
+                }
+            }
+            if (brand != null) {
+                String key = brand.toLowerCase(Locale.ROOT);
+                brandOf[ordinal] = key;
+                byBrand.computeIfAbsent(key, k -> new RoaringBitmap()).add(ordinal);
+                brandLabels.putIfAbsent(key, brand);
+            }
+            priceBucketOf[ordinal] = (byte) priceBucket(price);
+            byPrice[priceBucketOf[ordinal]].add(ordinal);
+            ratingOf[ordinal] = (byte) Math.max(0, Math.min(MAX_RATING, (int) Math.floor(rating)));
+            byRating[ratingOf[ordinal]].add(ordinal);
+            priceOf[ordinal] = price;
+            averageRatingOf[ordinal] = rating;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinals.remove(productId);
+            if (ordinal != null) {
+                unindex(ordinal);
+                freeOrdinals.add(ordinal);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public void onLoaded() {
+    }
+    
+    public FacetResult query(FacetQuery query, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap categoryFilter = query.getCategoryIds().isEmpty() ? null
+                    : union(query.getCategoryIds().stream().map(byCategory::get).toArray(RoaringBitmap[]::new));
+            RoaringBitmap brandFilter = query.getBrands().isEmpty() ? null
+                    : union(query.getBrands().stream()
+                            .map(brand -> byBrand.get(brand.toLowerCase(Locale.ROOT)))
+                            .toArray(RoaringBitmap[]::new));
+            RoaringBitmap priceFilter = query.getPriceBuckets().isEmpty() ? null
+                    : union(query.getPriceBuckets().stream()
+                            .mapToInt(FacetIndex::parsePriceBucket)
+                            .filter(bucket -> bucket >= 0)
+                            .mapToObj(bucket -> byPrice[bucket])
+                            .toArray(RoaringBitmap[]::new));
+            RoaringBitmap ratingFilter = query.getMinRating() == null ? null : ratingAtLeast(query.getMinRating());
+            RoaringBitmap stockFilter = query.isInStockOnly() ? inStock : null;
+            
+            RoaringBitmap matches = intersect(categoryFilter, brandFilter, priceFilter, ratingFilter, stockFilter);
+            
+            Map<String, List<FacetCountDTO>> facets = new LinkedHashMap<>();
+            facets.put(CATEGORY, categoryFacet(intersect(brandFilter, priceFilter, ratingFilter, stockFilter)));
+            facets.put(BRAND, brandFacet(intersect(categoryFilter, priceFilter, ratingFilter, stockFilter)));
+            facets.put(PRICE, priceFacet(intersect(categoryFilter, brandFilter, ratingFilter, stockFilter)));
+            facets.put(RATING, ratingFacet(intersect(categoryFilter, brandFilter, priceFilter, stockFilter)));
+            facets.put(AVAILABILITY, List.of(new FacetCountDTO("inStock", "In stock",
+                    RoaringBitmap.andCardinality(intersect(categoryFilter, brandFilter, priceFilter, ratingFilter), inStock))));
+            
+            return new FacetResult(topProducts(matches, query.getSort(), offset, limit), matches.getCardinality(), facets);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private List<FacetCountDTO> categoryFacet(RoaringBitmap base) {
+        List<FacetCountDTO> counts = new ArrayList<>();
+        for (Map.Entry<Long, RoaringBitmap> entry : byCategory.entrySet()) {
+            long count = RoaringBitmap.andCardinality(base, entry.getValue());
+            if (count > 0) {
+                counts.add(new FacetCountDTO(entry.getKey().toString(), categoryHierarchy.nameOf(entry.getKey()), count));
+            }
+        }
+        counts.sort(Comparator.comparingLong(FacetCountDTO::getCount).reversed());
+        return counts;
+    }
+    
+    private List<FacetCountDTO> brandFacet(RoaringBitmap base) {
+        List<FacetCountDTO> counts = new ArrayList<>();
+        for (Map.Entry<String, RoaringBitmap> entry : byBrand.entrySet()) {
+            long count = RoaringBitmap.andCardinality(base, entry.getValue());
+            if (count > 0) {
+                String label = brandLabels.get(entry.getKey());
+                counts.add(new FacetCountDTO(label, label, count));
+            }
+        }
+        counts.sort(Comparator.comparingLong(FacetCountDTO::getCount).reversed());
+        return counts.size() > MAX_BRAND_FACETS ? new ArrayList<>(counts.subList(0, MAX_BRAND_FACETS)) : counts;
+    }
+    
+    private List<FacetCountDTO> priceFacet(RoaringBitmap base) {
+        List<FacetCountDTO> counts = new ArrayList<>();
+        for (int bucket = 0; bucket < byPrice.length; bucket++) {
+            long count = RoaringBitmap.andCardinality(base, byPrice[bucket]);
+            if (count > 0) {
+                String key = priceBucketKey(bucket);
+                String label = bucket == PRICE_EDGES.length - 1
+                        ? "$" + PRICE_EDGES[bucket] + " & above"
+                        : "$" + PRICE_EDGES[bucket] + " - $" + PRICE_EDGES[bucket + 1];
+                counts.add(new FacetCountDTO(key, label, count));
+            }
+        }
+        return counts;
+    }
+    
+    private List<FacetCountDTO> ratingFacet(RoaringBitmap base) {
+        List<FacetCountDTO> counts = new ArrayList<>();
+        for (int stars = MAX_RATING - 1; stars >= 1; stars--) {
+            long count = RoaringBitmap.andCardinality(base, ratingAtLeast(stars));
+            counts.add(new FacetCountDTO(String.valueOf(stars), stars + " stars & up", count));
+        }
+        return counts;
+    }
+    
+    private RoaringBitmap ratingAtLeast(int stars) {
+        int from = Math.max(0, Math.min(MAX_RATING, stars));
+        return union(Arrays.copyOfRange(byRating, from, byRating.length));
+    }
+    
+    private List<Long> topProducts(RoaringBitmap matches, String sort, int offset, int limit) {
+        int wanted = offset + limit;
+        if (limit <= 0 || matches.isEmpty()) {
+            return List.of();
+        }
+        Comparator<Integer> order = comparator(sort);
+        // Min-heap of the best "wanted" ordinals seen so far; the head is the worst of them
+        PriorityQueue<Integer> top = new PriorityQueue<>(Math.min(wanted, matches.getCardinality()) + 1, order.reversed());
+        IntIterator it = matches.getIntIterator();
+        while (it.hasNext()) {
+            int ordinal = it.next();
+            if (top.size() < wanted) {
+                top.add(ordinal);
+            } else if (order.compare(ordinal, top.peek()) < 0) {
+                top.poll();
+                top.add(ordinal);
+            }
+        }
+        Long[] ranked = new Long[top.size()];
+        for (int i = ranked.length - 1; i >= 0; i--) {
+            ranked[i] = productIds[top.poll()];
+        }
+        if (offset >= ranked.length) {
+            return List.of();
+        }
+        return new ArrayList<>(Arrays.asList(ranked).subList(offset, ranked.length));
+    }
+    
+    private Comparator<Integer> comparator(String sort) {
+        Comparator<Integer> newest = (a, b) -> Long.compare(productIds[b], productIds[a]);
+        switch (sort) {
+            case "price_asc":
+                return Comparator.<Integer>comparingDouble(o -> priceOf[o]).thenComparing(newest);
+            case "price_desc":
+                return Comparator.<Integer>comparingDouble(o -> -priceOf[o]).thenComparing(newest);
+            case "rating":
+                return Comparator.<Integer>comparingDouble(o -> -averageRatingOf[o]).thenComparing(newest);
+            default:
+                return newest;
+        }
+    }
+    
+    private void unindex(int ordinal) {
+        all.remove(ordinal);
+        inStock.remove(ordinal);
+        long[] categories = categoriesOf[ordinal];
+        if (categories != null) {
+            for (long categoryId : categories) {
+                removeFrom(byCategory, categoryId, ordinal);
+            }
+            categoriesOf[ordinal] = null;
+        }
+        String brand = brandOf[ordinal];
+        if (brand != null) {
+            removeFrom(byBrand, brand, ordinal);
+            if (!byBrand.containsKey(brand)) {
+                brandLabels.remove(brand);
+            }
+            brandOf[ordinal] = null;
+        }
+        byPrice[priceBucketOf[ordinal]].remove(ordinal);
+        byRating[ratingOf[ordinal]].remove(ordinal);
+    }
+    
+    private static <K> void removeFrom(Map<K, RoaringBitmap> bitmaps, K key, int ordinal) {
+        RoaringBitmap bitmap = bitmaps.get(key);
+        if (bitmap != null) {
+            bitmap.remove(ordinal);
+            if (bitmap.isEmpty()) {
+                bitmaps.remove(key);
+            }
+        }
+    }
+    
+    private int allocateOrdinal() {
+        if (!freeOrdinals.isEmpty()) {
+            int ordinal = freeOrdinals.first();
+            freeOrdinals.remove(ordinal);
+            return ordinal;
+        }
+        if (ordinalCount == productIds.length) {
+            int capacity = ordinalCount * 2;
+            productIds = Arrays.copyOf(productIds, capacity);
+            categoriesOf = Arrays.copyOf(categoriesOf, capacity);
+            brandOf = Arrays.copyOf(brandOf, capacity);
+            priceBucketOf = Arrays.copyOf(priceBucketOf, capacity);
+            ratingOf = Arrays.copyOf(ratingOf, capacity);
+            priceOf = Arrays.copyOf(priceOf, capacity);
+            averageRatingOf = Arrays.copyOf(averageRatingOf, capacity);
+        }
+        return ordinalCount++;
+    }
+    
+    private RoaringBitmap intersect(RoaringBitmap... filters) {
+        RoaringBitmap result = all;
+        for (RoaringBitmap filter : filters) {
+            if (filter != null) {
+                result = RoaringBitmap.and(result, filter);
+            }
+        }
+        return result;
+    }
+    
+    private static RoaringBitmap union(RoaringBitmap[] bitmaps) {
+        RoaringBitmap result = new RoaringBitmap();
+        for (RoaringBitmap bitmap : bitmaps) {
+            if (bitmap != null) {
+                result.or(bitmap);
+            }
+        }
+        return result;
+    }
+    
+    private static int priceBucket(double price) {
+        for (int i = PRICE_EDGES.length - 1; i > 0; i--) {
+            if (price >= PRICE_EDGES[i]) {
+                return i;
+            }
+        }
+        return 0;
+    }
+    
+    private static String priceBucketKey(int bucket) {
+        return bucket == PRICE_EDGES.length - 1
+                ? PRICE_EDGES[bucket] + "-"
+                : PRICE_EDGES[bucket] + "-" + PRICE_EDGES[bucket + 1];
+    }
+    
+    private static int parsePriceBucket(String key) {
+        for (int i = 0; i < PRICE_EDGES.length; i++) {
+            if (priceBucketKey(i).equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    private static RoaringBitmap[] newBitmaps(int count) {
+        RoaringBitmap[] bitmaps = new RoaringBitmap[count];
+        for (int i = 0; i < count; i++) {
+            bitmaps[i] = new RoaringBitmap();
+        }
+        return bitmaps;
+    }
+    
+    public static final class FacetResult {
+        private final List<Long> productIds;
+        private final long totalHits;
+        private final Map<String, List<FacetCountDTO>> facets;
+        
+        public FacetResult(List<Long> productIds, long totalHits, Map<String, List<FacetCountDTO>> facets) {
+            this.productIds = productIds;
+            this.totalHits = totalHits;
+            this.facets = facets;
+        }
+        
+        public List<Long> getProductIds() { return productIds; }
+        public long getTotalHits() { return totalHits; }
+        public Map<String, List<FacetCountDTO>> getFacets() { return facets; }
+    }
+}
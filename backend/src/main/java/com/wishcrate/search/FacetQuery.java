@@ -0,0 +1,34 @@
+package com.wishcrate.search;
+
+import java.util.Set;
+
+/**
+ * Filters for a faceted catalog query. Values within a dimension are OR-ed, dimensions are AND-ed.
+ * Empty sets and null values mean "no filter".
+ */
+public class FacetQuery {
+    
+    private final Set<Long> categoryIds;
+    private final Set<String> brands;
+    private final Set<String> priceBuckets;
+    private final Integer minRating;
+    private final boolean inStockOnly;
+    private final String sort;
+    
+    public FacetQuery(Set<Long> categoryIds, Set<String> brands, Set<String> priceBuckets,
+                      Integer minRating, boolean inStockOnly, String sort) {
+        this.categoryIds = categoryIds != null ? categoryIds : Set.of();
+        this.brands = brands != null ? brands : Set.of();
+        this.priceBuckets = priceBuckets != null ? priceBuckets : Set.of();
+        this.minRating = minRating;
+        this.inStockOnly = inStockOnly;
+        this.sort = sort != null ? sort : "newest";
+    }
+    
+    public Set<Long> getCategoryIds() { return categoryIds; }
+    public Set<String> getBrands() { return brands; }
+    public Set<String> getPriceBuckets() { return priceBuckets; }
+    public Integer getMinRating() { return minRating; }
+    public boolean isInStockOnly() { return inStockOnly; }
+    public String getSort() { return sort; }
+}
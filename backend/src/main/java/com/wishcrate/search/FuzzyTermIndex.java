@@ -0,0 +1,313 @@
+package com.wishcrate.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+import org.springframework.stereotype.Component;
+
+import com.wishcrate.dto.ProductIndexView;
+
+/**
+ * Character trigram index over the words of active product names and brands, used to correct
+ * misspelled query words. Candidates are the known words sharing enough trigrams with the query
+ * word to be within the allowed edit distance, and only those are checked with a bounded
+ * Damerau-Levenshtein distance. The index is over distinct words rather than products, so its
+ * size follows the vocabulary, which grows far slower than the catalog.
+ */
+@Component
+public class FuzzyTermIndex implements ProductIndex {
+    
+    private static final char PAD_START = '\u0002';
+    private static final char PAD_END = '\u0003';
+    
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private final Map<Long, IntList> trigrams = new HashMap<>();
+    private final Map<Long, int[]> productTerms = new HashMap<>();
+    private String[] terms = new String[1024];
+    private int[] documentCounts = new int[1024];
+    private final IntList freeIds = new IntList();
+    private int termCount;
+    private final ThreadLocal<int[]> sharedCounts = ThreadLocal.withInitial(() -> new int[0]);
+    
+    @Override
+    public void index(ProductIndexView product) {
+        List<String> words = TextAnalyzer.tokenize(product.getName());
+        words.addAll(TextAnalyzer.tokenize(product.getBrand()));
+        String[] distinct = words.stream().filter(w -> w.length() > 1).distinct().toArray(String[]::new);
+        
+        lock.writeLock().lock();
+        try {
+            release(productTerms.remove(product.getId()));
+            int[] ids = new int[distinct.length];
+            for (int i = 0; i < distinct.length; i++) {
+                ids[i] = acquire(distinct[i]);
+            }
+            productTerms.put(product.getId(), ids);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            release(productTerms.remove(productId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public void onLoaded() {
+    }
+    
+    /**
+     * Replaces each query word that no active product name or brand contains with the closest
+     * known word, preferring fewer edits and then more common words. Words with no close match,
+     * numbers, stop words, words of two characters or less and words accepted by {@code known}
+     * are kept as typed.
+     */
+    public Correction correct(String query, Predicate<String> known) {
+        List<String> words = TextAnalyzer.tokenize(query);
+        List<String> corrected = new ArrayList<>(words.size());
+        boolean changed = false;
+        lock.readLock().lock();
+        try {
+            for (String word : words) {
+                String replacement = known.test(word) ? null : closest(word);
+                corrected.add(replacement != null ? replacement : word);
+                changed |= replacement != null;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return new Correction(String.join(" ", corrected), changed);
+    }
+    
+    // Caller holds the read lock
+    private String closest(String word) {
+        Integer known = termIds.get(word);
+        int maxEdits = maxEdits(word);
+        if (known != null || maxEdits == 0 || !hasLetter(word) || TextAnalyzer.analyze(word).isEmpty()) {
+            return null;
+        }
+        String stem = TextAnalyzer.stem(word);
+        
+        // An insertion, deletion or substitution changes at most three of a word's padded
+        // trigrams; an adjacent transposition, also one edit, changes four
+        long[] grams = trigramsOf(word);
+        int minShared = grams.length - 4 * maxEdits;
+        // Shared-trigram counts by term id, reused across calls and cleared through touched
+        int[] shared = sharedCounts.get();
+        if (shared.length < termCount) {
+            shared = new int[Math.max(termCount, shared.length * 2)];
+            sharedCounts.set(shared);
+        }
+        int[] touched = new int[16];
+        int touchedCount = 0;
+        try {
+            for (long gram : grams) {
+                IntList list = trigrams.get(gram);
+                if (list == null) {
+                    continue;
+                }
+                for (int i = 0; i < list.size; i++) {
+                    int id = list.values[i];
+                    if (shared[id]++ == 0) {
+                        if (touchedCount == touched.length) {
+                            touched = Arrays.copyOf(touched, touchedCount * 2);
+                        }
+                        touched[touchedCount++] = id;
+                    }
+                }
+            }
+            
+            String best = null;
+            int bestDistance = maxEdits + 1;
+            int bestCount = 0;
+            for (int i = 0; i < touchedCount; i++) {
+                int id = touched[i];
+                String term = terms[id];
+                if (shared[id] < minShared || Math.abs(term.length() - word.length()) > maxEdits) {
+                    continue;
+                }
+                if (TextAnalyzer.stem(term).equals(stem)) {
+                    // Another form of a known word ("phones" for "phone") already matches as typed
+                    return null;
+                }
+                int distance = distance(word, term, Math.min(maxEdits, bestDistance));
+                if (distance > maxEdits) {
+                    continue;
+                }
+                if (distance < bestDistance
+                        || (distance == bestDistance && (documentCounts[id] > bestCount
+                        || (documentCounts[id] == bestCount && term.compareTo(best) < 0)))) {
+                    best = term;
+                    bestDistance = distance;
+                    bestCount = documentCounts[id];
+                }
+            }
+            return best;
+        } finally {
+            for (int i = 0; i < touchedCount; i++) {
+                shared[touched[i]] = 0;
+            }
+        }
+    }
+    
+    // Caller holds the write lock
+    private int acquire(String term) {
+        Integer existing = termIds.get(term);
+        if (existing != null) {
+            documentCounts[existing]++;
+            return existing;
+        }
+        int id;
+        if (freeIds.size > 0) {
+            id = freeIds.values[--freeIds.size];
+        } else {
+            if (termCount == terms.length) {
+                terms = Arrays.copyOf(terms, termCount * 2);
+                documentCounts = Arrays.copyOf(documentCounts, termCount * 2);
+            }
+            id = termCount++;
+        }
+        terms[id] = term;
+        documentCounts[id] = 1;
+        termIds.put(term, id);
+        for (long gram : trigramsOf(term)) {
+            trigrams.computeIfAbsent(gram, g -> new IntList()).add(id);
+        }
+        return id;
+    }
+    
+    // Caller holds the write lock
+    private void release(int[] ids) {
+        if (ids == null) {
+            return;
+        }
+        for (int id : ids) {
+            if (--documentCounts[id] > 0) {
+                continue;
+            }
+            String term = terms[id];
+            for (long gram : trigramsOf(term)) {
+                IntList list = trigrams.get(gram);
+                if (list != null && list.remove(id) && list.size == 0) {
+                    trigrams.remove(gram);
+                }
+            }
+            termIds.remove(term);
+            terms[id] = null;
+            freeIds.add(id);
+        }
+    }
+    
+    // Distinct trigrams of the word padded with two start markers and one end marker, packed into longs
+    private static long[] trigramsOf(String word) {
+        String padded = "" + PAD_START + PAD_START + word + PAD_END;
+        long[] grams = new long[padded.length() - 2];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = ((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2);
+        }
+        return Arrays.stream(grams).distinct().toArray();
+    }
+    
+    private static int maxEdits(String word) {
+        if (word.length() <= 2) {
+            return 0;
+        }
+        return word.length() <= 5 ? 1 : 2;
+    }
+    
+    private static boolean hasLetter(String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (Character.isLetter(word.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Optimal string alignment distance (edits plus adjacent transpositions), or
+     * {@code limit + 1} as soon as every alignment exceeds {@code limit}.
+     */
+    static int distance(String a, String b, int limit) {
+        int n = a.length();
+        int m = b.length();
+        if (Math.abs(n - m) > limit) {
+            return limit + 1;
+        }
+        int[] previous2 = new int[m + 1];
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= n; i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= m; j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, previous2[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > limit) {
+                return limit + 1;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return Math.min(previous[m], limit + 1);
+    }
+    
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+    
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    
+        private boolean remove(int value) {
+            for (int i = 0; i < size; i++) {
+                if (values[i] == value) {
+                    values[i] = values[--size];
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+    
+    public static final class Correction {
+        private final String query;
+        private final boolean changed;
+    
+        public Correction(String query, boolean changed) {
+            this.query = query;
+            this.changed = changed;
+        }
+    
+        public String getQuery() { return query; }
+        public boolean isChanged() { return changed; }
+    }
+}
@@ -0,0 +1,24 @@
+package com.wishcrate.search;
+
+import com.wishcrate.dto.ProductIndexView;
+
+/**
+ * An in-memory view over the active catalog kept up to date by {@link CatalogIndexer}.
+ */
+public interface ProductIndex {
+    
+    /**
+     * Adds the product or replaces whatever was indexed for it before.
+     */
+    void index(ProductIndexView product);
+    
+    /**
+     * Drops the product. Called for deactivated and missing products; must tolerate unknown ids.
+     */
+    void remove(Long productId);
+    
+    /**
+     * Called once the initial load has fed every active product through {@link #index}.
+     */
+    void onLoaded();
+}
@@ -0,0 +1,316 @@
+package com.wishcrate.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.wishcrate.cache.CategoryHierarchy;
+import com.wishcrate.dto.ProductIndexView;
+import com.wishcrate.dto.ProductSalesView;
+import com.wishcrate.event.CategoryChangedEvent;
+import com.wishcrate.event.OrderCancelledEvent;
+import com.wishcrate.event.OrderPlacedEvent;
+import com.wishcrate.model.Order;
+import com.wishcrate.repository.OrderRepository;
+
+/**
+ * Materialized top-N lists of active products by rating and by units sold, overall and per
+ * category, where a category's list also covers its subcategories. Each list is kept in order
+ * as products and orders change; only when a member drops out of a full list is that list
+ * rebuilt, lazily, on its next read.
+ */
+@Component
+public class ProductRankings implements ProductIndex, SmartInitializingSingleton {
+    
+    private static final Logger log = LoggerFactory.getLogger(ProductRankings.class);
+    
+    private static final Comparator<Ranked> BY_RATING = Comparator
+            .comparingDouble((Ranked r) -> r.rating).reversed()
+            .thenComparing(Comparator.comparingInt((Ranked r) -> r.reviews).reversed())
+            .thenComparingLong(r -> r.id);
+    private static final Comparator<Ranked> BY_UNITS_SOLD = Comparator
+            .comparingLong((Ranked r) -> r.unitsSold).reversed()
+            .thenComparingLong(r -> r.id);
+    
+    private final OrderRepository orderRepository;
+    private final CategoryHierarchy categoryHierarchy;
+    private final int size;
+    
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Ranked> products = new HashMap<>();
+    private final Map<Long, Long> unitsSold = new HashMap<>();
+    private final Ranking rating;
+    private final Ranking bestSellers;
+    
+    public ProductRankings(OrderRepository orderRepository, CategoryHierarchy categoryHierarchy,
+                           @Value("${app.rankings.size:100}") int size) {
+        this.orderRepository = orderRepository;
+        this.categoryHierarchy = categoryHierarchy;
+        this.size = size;
+        this.rating = new Ranking(BY_RATING, r -> true);
+        this.bestSellers = new Ranking(BY_UNITS_SOLD, r -> r.unitsSold > 0);
+    }
+    
+    /**
+     * Sums units sold from existing orders. Runs before the web server accepts requests, so no
+     * order can be placed or cancelled between the query and the first sales event.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        List<ProductSalesView> sales = orderRepository.sumUnitsSoldByProduct(Order.OrderStatus.CANCELLED);
+        lock.writeLock().lock();
+        try {
+            for (ProductSalesView view : sales) {
+                unitsSold.put(view.getProductId(), view.getUnitsSold());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Loaded units sold for {} products", sales.size());
+    }
+    
+    @Override
+    public void index(ProductIndexView product) {
+        lock.writeLock().lock();
+        try {
+            update(product.getId(), new Ranked(product.getId(), product.getCategoryId(),
+                    product.getAverageRating() != null ? product.getAverageRating() : 0,
+                    product.getTotalReviews() != null ? product.getTotalReviews() : 0,
+                    unitsSold.getOrDefault(product.getId(), 0L)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            update(productId, null);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public void onLoaded() {
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        applySales(event.getQuantities(), 1);
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderCancelled(OrderCancelledEvent event) {
+        applySales(event.getQuantities(), -1);
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        // Subtrees may have moved; per-category lists are recreated on their next read
+        lock.writeLock().lock();
+        try {
+            rating.byCategory.clear();
+            bestSellers.byCategory.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public List<Long> topRated(Long categoryId, int limit) {
+        return rating.top(categoryId, limit);
+    }
+    
+    public List<Long> bestSellers(Long categoryId, int limit) {
+        return bestSellers.top(categoryId, limit);
+    }
+    
+    public int getSize() {
+        return size;
+    }
+    
+    private void applySales(Map<Long, Integer> quantities, int sign) {
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+                Long productId = entry.getKey();
+                long units = Math.max(0, unitsSold.getOrDefault(productId, 0L) + sign * (long) entry.getValue());
+                unitsSold.put(productId, units);
+                Ranked current = products.get(productId);
+                if (current != null) {
+                    update(productId, new Ranked(productId, current.categoryId, current.rating, current.reviews, units));
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    // Caller holds the write lock
+    private void update(Long productId, Ranked next) {
+        Ranked previous = next != null ? products.put(productId, next) : products.remove(productId);
+        rating.update(previous, next);
+        bestSellers.update(previous, next);
+    }
+    
+    /**
+     * One ordering with its overall list and lazily created per-category lists.
+     */
+    private final class Ranking {
+        private final Comparator<Ranked> order;
+        private final Predicate<Ranked> eligible;
+        private final TopList overall;
+        private final Map<Long, TopList> byCategory = new HashMap<>();
+    
+        private Ranking(Comparator<Ranked> order, Predicate<Ranked> eligible) {
+            this.order = order;
+            this.eligible = eligible;
+            this.overall = new TopList(null);
+        }
+    
+        private void update(Ranked previous, Ranked next) {
+            overall.update(previous, next);
+            List<Long> previousPath = categoryPath(previous);
+            List<Long> nextPath = categoryPath(next);
+            for (Long categoryId : previousPath) {
+                TopList list = byCategory.get(categoryId);
+                if (list != null && !nextPath.contains(categoryId)) {
+                    list.update(previous, null);
+                }
+            }
+            for (Long categoryId : nextPath) {
+                TopList list = byCategory.get(categoryId);
+                if (list != null) {
+                    list.update(previousPath.contains(categoryId) ? previous : null, next);
+                }
+            }
+        }
+        
+        // The product's category and every category above it
+        private List<Long> categoryPath(Ranked ranked) {
+            return ranked != null && ranked.categoryId != null
+                    ? categoryHierarchy.ancestorsOf(ranked.categoryId) : List.of();
+        }
+    
+        private List<Long> top(Long categoryId, int limit) {
+            lock.readLock().lock();
+            try {
+                TopList list = categoryId == null ? overall : byCategory.get(categoryId);
+                if (list != null && !list.stale) {
+                    return list.ids(limit);
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            lock.writeLock().lock();
+            try {
+                TopList list = categoryId == null ? overall : byCategory.computeIfAbsent(categoryId, TopList::new);
+                if (list.stale) {
+                    list.rebuild();
+                }
+                return list.ids(limit);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    
+        /**
+         * The best {@code size} eligible products of one category (or of all when categoryId
+         * is null). While not stale it holds exactly that set, in order.
+         */
+        private final class TopList {
+            private final Long categoryId;
+            private final TreeSet<Ranked> entries = new TreeSet<>(order);
+            private boolean stale = true;
+    
+            private TopList(Long categoryId) {
+                this.categoryId = categoryId;
+            }
+    
+            private void update(Ranked previous, Ranked next) {
+                if (stale) {
+                    return;
+                }
+                boolean wasMember = previous != null && entries.remove(previous);
+                boolean full = entries.size() + (wasMember ? 1 : 0) >= size;
+                if (next == null || !eligible.test(next)) {
+                    // Leaving a full list opens a slot that only a rebuild can fill
+                    stale = wasMember && full;
+                    return;
+                }
+                if (wasMember && full && order.compare(next, previous) > 0) {
+                    // Moved down: something outside the list may now outrank it
+                    stale = true;
+                    return;
+                }
+                if (entries.size() < size) {
+                    if (wasMember || !full) {
+                        entries.add(next);
+                    }
+                    return;
+                }
+                if (order.compare(next, entries.last()) < 0) {
+                    entries.pollLast();
+                    entries.add(next);
+                }
+            }
+    
+            private void rebuild() {
+                PriorityQueue<Ranked> heap = new PriorityQueue<>(size + 1, order.reversed());
+                for (Ranked ranked : products.values()) {
+                    if ((categoryId == null || categoryHierarchy.isDescendant(ranked.categoryId, categoryId))
+                            && eligible.test(ranked)) {
+                        heap.add(ranked);
+                        if (heap.size() > size) {
+                            heap.poll();
+                        }
+                    }
+                }
+                entries.clear();
+                entries.addAll(heap);
+                stale = false;
+            }
+    
+            private List<Long> ids(int limit) {
+                List<Long> ids = new ArrayList<>(Math.min(limit, entries.size()));
+                for (Ranked ranked : entries) {
+                    if (ids.size() == limit) {
+                        break;
+                    }
+                    ids.add(ranked.id);
+                }
+                return ids;
+            }
+        }
+    }
+    
+    private static final class Ranked {
+        private final long id;
+        private final Long categoryId;
+        private final double rating;
+        private final int reviews;
+        private final long unitsSold;
+    
+        private Ranked(long id, Long categoryId, double rating, int reviews, long unitsSold) {
+            this.id = id;
+            this.categoryId = categoryId;
+            this.rating = rating;
+            this.reviews = reviews;
+            this.unitsSold = unitsSold;
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package com.wishcrate.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.stereotype.Component;
+
+import com.wishcrate.dto.ProductIndexView;
+
+/**
+ * Inverted index over product name, brand, category name and description with BM25 ranking.
+ * Fields are weighted by scaling their term frequencies (a simplified BM25F).
+ */
+@Component
+public class ProductSearchIndex implements ProductIndex {
+    
+    private static final float NAME_WEIGHT = 3.0f;
+    private static final float BRAND_WEIGHT = 2.0f;
+    private static final float CATEGORY_WEIGHT = 1.5f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+    
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private long[] productIds = new long[1024];
+    private float[] docLengths = new float[1024];
+    private int[] docVersions = new int[1024];
+    private String[][] docTerms = new String[1024][];
+    private int[] freeOrdinals = new int[64];
+    private int freeCount;
+    private int ordinalCount;
+    private int docCount;
+    private double totalLength;
+    
+    private volatile boolean ready;
+    
+    @Override
+    public void index(ProductIndexView product) {
+        Map<String, Float> frequencies = new HashMap<>();
+        float length = 0;
+        length += addTerms(frequencies, product.getName(), NAME_WEIGHT);
+        length += addTerms(frequencies, product.getBrand(), BRAND_WEIGHT);
+        length += addTerms(frequencies, product.getCategoryName(), CATEGORY_WEIGHT);
+        length += addTerms(frequencies, product.getDescription(), DESCRIPTION_WEIGHT);
+        
+        lock.writeLock().lock();
+        try {
+            Integer existing = ordinals.get(product.getId());
+            int ordinal;
+            if (existing != null) {
+                ordinal = existing;
+                unindex(ordinal);
+            } else {
+                ordinal = allocateOrdinal();
+                ordinals.put(product.getId(), ordinal);
+                productIds[ordinal] = product.getId();
+                docCount++;
+            }
+            String[] terms = frequencies.keySet().toArray(new String[0]);
+            for (String term : terms) {
+                postings.computeIfAbsent(term, t -> new Postings())
+                        .add(ordinal, docVersions[ordinal], frequencies.get(term));
+            }
+            docTerms[ordinal] = terms;
+            docLengths[ordinal] = length;
+            totalLength += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinals.remove(productId);
+            if (ordinal == null) {
+                return;
+            }
+            unindex(ordinal);
+            docTerms[ordinal] = null;
+            docCount--;
+            if (freeCount == freeOrdinals.length) {
+                freeOrdinals = Arrays.copyOf(freeOrdinals, freeCount * 2);
+            }
+            freeOrdinals[freeCount++] = ordinal;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public void onLoaded() {
+        ready = true;
+    }
+    
+    public boolean isReady() {
+        return ready;
+    }
+    
+    /**
+     * Whether every term the text analyzes to occurs in some active product.
+     */
+    public boolean matchesAll(String text) {
+        List<String> terms = TextAnalyzer.analyze(text);
+        lock.readLock().lock();
+        try {
+            return !terms.isEmpty() && terms.stream().allMatch(postings::containsKey);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Ranks active products against the query and returns one page of product ids, best first,
+     * together with the total number of matching products.
+     */
+    public SearchResult search(String query, int offset, int limit) {
+        Set<String> queryTerms = new LinkedHashSet<>(TextAnalyzer.analyze(query));
+        if (queryTerms.isEmpty() || limit <= 0) {
+            return new SearchResult(List.of(), 0);
+        }
+        
+        lock.readLock().lock();
+        try {
+            float avgLength = docCount == 0 ? 1f : (float) (totalLength / docCount);
+            List<Postings> lists = new ArrayList<>(queryTerms.size());
+            int maxTouched = 0;
+            for (String term : queryTerms) {
+                Postings list = postings.get(term);
+                if (list != null) {
+                    lists.add(list);
+                    maxTouched += list.live;
+                }
+            }
+            
+            // Sized by the matching postings rather than the whole catalog
+            ScoreTable scores = new ScoreTable(maxTouched);
+            for (Postings list : lists) {
+                float idf = (float) Math.log(1 + (docCount - list.live + 0.5) / (list.live + 0.5));
+                for (int i = 0; i < list.size; i++) {
+                    int ordinal = list.docs[i];
+                    if (list.versions[i] != docVersions[ordinal]) {
+                        continue;
+                    }
+                    float tf = list.freqs[i];
+                    float norm = K1 * (1 - B + B * docLengths[ordinal] / avgLength);
+                    scores.add(ordinal, idf * tf * (K1 + 1) / (tf + norm));
+                }
+            }
+            
+            int wanted = offset + limit;
+            PriorityQueue<Integer> top = new PriorityQueue<>(Math.min(wanted, Math.max(scores.size, 1)) + 1,
+                    (a, b) -> compare(scores, a, b));
+            for (int slot = 0; slot < scores.ordinals.length; slot++) {
+                if (scores.ordinals[slot] < 0) {
+                    continue;
+                }
+                if (top.size() < wanted) {
+                    top.add(slot);
+                } else if (compare(scores, slot, top.peek()) > 0) {
+                    top.poll();
+                    top.add(slot);
+                }
+            }
+            
+            Long[] ranked = new Long[top.size()];
+            for (int i = ranked.length - 1; i >= 0; i--) {
+                ranked[i] = productIds[scores.ordinals[top.poll()]];
+            }
+            List<Long> page = offset >= ranked.length
+                    ? List.of()
+                    : Arrays.asList(ranked).subList(offset, ranked.length);
+            return new SearchResult(new ArrayList<>(page), scores.size);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // Orders by score, breaking ties in favour of newer products
+    private int compare(ScoreTable scores, int slotA, int slotB) {
+        int byScore = Float.compare(scores.scores[slotA], scores.scores[slotB]);
+        return byScore != 0 ? byScore
+                : Long.compare(productIds[scores.ordinals[slotA]], productIds[scores.ordinals[slotB]]);
+    }
+    
+    private static float addTerms(Map<String, Float> frequencies, String text, float weight) {
+        List<String> terms = TextAnalyzer.analyze(text);
+        for (String term : terms) {
+            frequencies.merge(term, weight, Float::sum);
+        }
+        return terms.size() * weight;
+    }
+    
+    private void unindex(int ordinal) {
+        String[] terms = docTerms[ordinal];
+        if (terms == null) {
+            return;
+        }
+        // Bumping the version turns every posting of the old document into a tombstone at once
+        docVersions[ordinal]++;
+        for (String term : terms) {
+            Postings list = postings.get(term);
+            if (list != null && list.discardOne(docVersions) == 0) {
+                postings.remove(term);
+            }
+        }
+        totalLength -= docLengths[ordinal];
+        docLengths[ordinal] = 0;
+    }
+    
+    private int allocateOrdinal() {
+        if (freeCount > 0) {
+            return freeOrdinals[--freeCount];
+        }
+        if (ordinalCount == productIds.length) {
+            int capacity = ordinalCount * 2;
+            productIds = Arrays.copyOf(productIds, capacity);
+            docLengths = Arrays.copyOf(docLengths, capacity);
+            docVersions = Arrays.copyOf(docVersions, capacity);
+            docTerms = Arrays.copyOf(docTerms, capacity);
+        }
+        return ordinalCount++;
+    }
+    
+    /**
+     * Entries are only appended. A removed document leaves tombstones behind, recognised by a
+     * version that no longer matches the document's, and they are dropped in one pass once
+     * they make up half the list.
+     */
+    private static final class Postings {
+        private int[] docs = new int[4];
+        private int[] versions = new int[4];
+        private float[] freqs = new float[4];
+        private int size;
+        private int live;
+        
+        private void add(int doc, int version, float freq) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                versions = Arrays.copyOf(versions, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docs[size] = doc;
+            versions[size] = version;
+            freqs[size] = freq;
+            size++;
+            live++;
+        }
+        
+        // Called once per removed document; returns the number of live entries left
+        private int discardOne(int[] docVersions) {
+            live--;
+            if (live > 0 && size - live > Math.max(8, live)) {
+                int kept = 0;
+                for (int i = 0; i < size; i++) {
+                    if (versions[i] == docVersions[docs[i]]) {
+                        docs[kept] = docs[i];
+                        versions[kept] = versions[i];
+                        freqs[kept] = freqs[i];
+                        kept++;
+                    }
+                }
+                size = kept;
+            }
+            return live;
+        }
+    }
+    
+    // Open-addressing map from ordinal to accumulated score for the documents a query touches
+    private static final class ScoreTable {
+        private final int[] ordinals;
+        private final float[] scores;
+        private final int mask;
+        private final int shift;
+        private int size;
+        
+        private ScoreTable(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(2, expected * 2 - 1)) << 1;
+            ordinals = new int[capacity];
+            scores = new float[capacity];
+            mask = capacity - 1;
+            shift = Integer.numberOfLeadingZeros(capacity) + 1;
+            Arrays.fill(ordinals, -1);
+        }
+        
+        private void add(int ordinal, float score) {
+            int slot = (ordinal * 0x9E3779B9) >>> shift;
+            while (ordinals[slot] >= 0 && ordinals[slot] != ordinal) {
+                slot = (slot + 1) & mask;
+            }
+            if (ordinals[slot] < 0) {
+                ordinals[slot] = ordinal;
+                size++;
+            }
+            scores[slot] += score;
+        }
+    }
+    
+    public static final class SearchResult {
+        private final List<Long> productIds;
+        private final long totalHits;
+        
+        public SearchResult(List<Long> productIds, long totalHits) {
+            this.productIds = productIds;
+            this.totalHits = totalHits;
+        }
+        
+        public List<Long> getProductIds() { return productIds; }
+        public long getTotalHits() { return totalHits; }
+    }
+}
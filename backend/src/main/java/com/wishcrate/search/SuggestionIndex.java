@@ -0,0 +1,425 @@
+package com.wishcrate.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.stereotype.Component;
+
+import com.wishcrate.dto.ProductIndexView;
+import com.wishcrate.dto.SuggestionDTO;
+
+/**
+ * Search-as-you-type over product names, brands and category names. Suggestions live in a
+ * character trie keyed by every word start of their text, and each node caches its best
+ * suggestions by popularity, so a lookup is a walk down the prefix plus a copy of that list.
+ */
+@Component
+public class SuggestionIndex implements ProductIndex {
+    
+    public static final String PRODUCT = "product";
+    public static final String BRAND = "brand";
+    public static final String CATEGORY = "category";
+    
+    private static final int TOP_K = 10;
+    private static final int MAX_PATH_LENGTH = 40;
+    
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Node root = new Node();
+    
+    private final Map<Long, IndexedProduct> products = new HashMap<>();
+    private final Map<String, Aggregate> brands = new HashMap<>();
+    private final Map<Long, Aggregate> categories = new HashMap<>();
+    
+    @Override
+    public void index(ProductIndexView product) {
+        double weight = popularity(product);
+        String brandKey = product.getBrand() != null && !product.getBrand().isBlank()
+                ? product.getBrand().trim().toLowerCase(Locale.ROOT) : null;
+        
+        lock.writeLock().lock();
+        try {
+            IndexedProduct previous = products.get(product.getId());
+            if (previous != null) {
+                unindex(product.getId(), previous);
+            }
+            IndexedProduct indexed = new IndexedProduct(
+                    new Suggestion("p:" + product.getId(), product.getName(), PRODUCT, product.getId(), weight),
+                    brandKey, product.getCategoryId());
+            products.put(product.getId(), indexed);
+            insert(indexed.suggestion);
+            
+            if (brandKey != null) {
+                Aggregate brand = brands.computeIfAbsent(brandKey,
+                        key -> new Aggregate("b:" + key, product.getBrand().trim(), BRAND, null));
+                reweigh(brand, weight, 1);
+            }
+            if (product.getCategoryId() != null) {
+                Aggregate category = categories.computeIfAbsent(product.getCategoryId(),
+                        id -> new Aggregate("c:" + id, product.getCategoryName(), CATEGORY, id));
+                if (product.getCategoryName() != null && !product.getCategoryName().equals(category.text)) {
+                    // Category was renamed: re-key its trie paths under the new name
+                    remove(category.suggestion());
+                    category.text = product.getCategoryName();
+                    if (category.count > 0) {
+                        insert(category.suggestion());
+                    }
+                }
+                reweigh(category, weight, 1);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            IndexedProduct previous = products.get(productId);
+            if (previous != null) {
+                unindex(productId, previous);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public void onLoaded() {
+    }
+    
+    public List<SuggestionDTO> suggest(String prefix, int limit) {
+        String path = normalize(prefix);
+        if (path.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            for (int i = 0; i < path.length() && node != null; i++) {
+                node = node.child(path.charAt(i));
+            }
+            List<SuggestionDTO> results = new ArrayList<>();
+            if (node != null) {
+                for (int i = 0; i < node.topSize && results.size() < limit; i++) {
+                    Suggestion suggestion = node.top[i];
+                    results.add(new SuggestionDTO(suggestion.text, suggestion.type, suggestion.id));
+                }
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private void unindex(Long productId, IndexedProduct indexed) {
+        products.remove(productId);
+        remove(indexed.suggestion);
+        if (indexed.brandKey != null) {
+            Aggregate brand = brands.get(indexed.brandKey);
+            if (brand != null) {
+                reweigh(brand, -indexed.suggestion.weight, -1);
+                if (brand.count == 0) {
+                    brands.remove(indexed.brandKey);
+                }
+            }
+        }
+        if (indexed.categoryId != null) {
+            Aggregate category = categories.get(indexed.categoryId);
+            if (category != null) {
+                reweigh(category, -indexed.suggestion.weight, -1);
+                if (category.count == 0) {
+                    categories.remove(indexed.categoryId);
+                }
+            }
+        }
+    }
+    
+    private void reweigh(Aggregate aggregate, double weightDelta, int countDelta) {
+        Suggestion previous = aggregate.count > 0 ? aggregate.suggestion() : null;
+        aggregate.weight = Math.max(0, aggregate.weight + weightDelta);
+        aggregate.count += countDelta;
+        if (aggregate.count <= 0) {
+            if (previous != null) {
+                remove(previous);
+            }
+        } else if (previous == null) {
+            insert(aggregate.suggestion());
+        } else {
+            Suggestion updated = aggregate.suggestion();
+            for (String path : paths(updated.text)) {
+                replacePath(root, path, 0, updated, updated.weight < previous.weight);
+            }
+        }
+    }
+    
+    private void insert(Suggestion suggestion) {
+        for (String path : paths(suggestion.text)) {
+            Node node = root;
+            for (int i = 0; i < path.length(); i++) {
+                node = node.getOrCreateChild(path.charAt(i));
+                node.offer(suggestion);
+            }
+            node.addTerminal(suggestion);
+        }
+    }
+    
+    private void remove(Suggestion suggestion) {
+        for (String path : paths(suggestion.text)) {
+            removePath(root, path, 0, suggestion.key);
+        }
+    }
+    
+    // Returns true when the child at this level became empty and can be unlinked. Children are
+    // handled first, so each node refills from already corrected child lists.
+    private boolean removePath(Node node, String path, int depth, String key) {
+        if (depth == path.length()) {
+            node.removeTerminal(key);
+        } else {
+            Node child = node.child(path.charAt(depth));
+            if (child == null) {
+                return false;
+            }
+            if (removePath(child, path, depth + 1, key)) {
+                node.removeChild(path.charAt(depth));
+            }
+        }
+        if (node != root && node.removeFromTop(key)) {
+            node.refill();
+        }
+        return node != root && node.isEmpty();
+    }
+    
+    // Swaps in a new weight for a suggestion already on this path, bottom-up like removePath
+    private void replacePath(Node node, String path, int depth, Suggestion suggestion, boolean demoted) {
+        if (depth == path.length()) {
+            node.addTerminal(suggestion);
+        } else {
+            Node child = node.child(path.charAt(depth));
+            if (child == null) {
+                return;
+            }
+            replacePath(child, path, depth + 1, suggestion, demoted);
+        }
+        if (node == root) {
+            return;
+        }
+        if (demoted && node.removeFromTop(suggestion.key)) {
+            // Something outside the list may now outrank it
+            node.refill();
+        } else {
+            node.offer(suggestion);
+        }
+    }
+    
+    private static List<String> paths(String text) {
+        List<String> tokens = TextAnalyzer.tokenize(text);
+        List<String> paths = new ArrayList<>(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            String path = String.join(" ", tokens.subList(i, tokens.size()));
+            paths.add(path.length() > MAX_PATH_LENGTH ? path.substring(0, MAX_PATH_LENGTH) : path);
+        }
+        return paths;
+    }
+    
+    private static String normalize(String prefix) {
+        String path = String.join(" ", TextAnalyzer.tokenize(prefix));
+        return path.length() > MAX_PATH_LENGTH ? path.substring(0, MAX_PATH_LENGTH) : path;
+    }
+    
+    private static double popularity(ProductIndexView product) {
+        int reviews = product.getTotalReviews() != null ? product.getTotalReviews() : 0;
+        double rating = product.getAverageRating() != null ? product.getAverageRating() : 0;
+        return 0.01 + Math.log1p(reviews) * (1 + rating) + (product.isFeatured() ? 1 : 0);
+    }
+    
+    private static final class Suggestion {
+        private final String key;
+        private final String text;
+        private final String type;
+        private final Long id;
+        private final double weight;
+        
+        private Suggestion(String key, String text, String type, Long id, double weight) {
+            this.key = key;
+            this.text = text != null ? text : "";
+            this.type = type;
+            this.id = id;
+            this.weight = weight;
+        }
+    }
+    
+    private static final class IndexedProduct {
+        private final Suggestion suggestion;
+        private final String brandKey;
+        private final Long categoryId;
+        
+        private IndexedProduct(Suggestion suggestion, String brandKey, Long categoryId) {
+            this.suggestion = suggestion;
+            this.brandKey = brandKey;
+            this.categoryId = categoryId;
+        }
+    }
+    
+    // A brand or category: its popularity is the sum over its products
+    private static final class Aggregate {
+        private final String key;
+        private String text;
+        private final String type;
+        private final Long id;
+        private double weight;
+        private int count;
+        
+        private Aggregate(String key, String text, String type, Long id) {
+            this.key = key;
+            this.text = text;
+            this.type = type;
+            this.id = id;
+        }
+        
+        private Suggestion suggestion() {
+            return new Suggestion(key, text, type, id, weight);
+        }
+    }
+    
+    private static final class Node {
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private Suggestion[] top = new Suggestion[0];
+        private int topSize;
+        private Suggestion[] terminals;
+        
+        private Node child(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            return i >= 0 ? children[i] : null;
+        }
+        
+        private Node getOrCreateChild(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            if (i >= 0) {
+                return children[i];
+            }
+            int at = -i - 1;
+            Node node = new Node();
+            keys = insertAt(keys, at, c);
+            Node[] grown = new Node[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, at);
+            grown[at] = node;
+            System.arraycopy(children, at, grown, at + 1, children.length - at);
+            children = grown;
+            return node;
+        }
+        
+        private void removeChild(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            if (i < 0) {
+                return;
+            }
+            char[] shrunkKeys = new char[keys.length - 1];
+            System.arraycopy(keys, 0, shrunkKeys, 0, i);
+            System.arraycopy(keys, i + 1, shrunkKeys, i, keys.length - i - 1);
+            Node[] shrunk = new Node[children.length - 1];
+            System.arraycopy(children, 0, shrunk, 0, i);
+            System.arraycopy(children, i + 1, shrunk, i, children.length - i - 1);
+            keys = shrunkKeys;
+            children = shrunk;
+        }
+        
+        private boolean isEmpty() {
+            return children.length == 0 && (terminals == null || terminals.length == 0);
+        }
+        
+        private void addTerminal(Suggestion suggestion) {
+            if (terminals == null) {
+                terminals = new Suggestion[] {suggestion};
+                return;
+            }
+            for (int i = 0; i < terminals.length; i++) {
+                if (terminals[i].key.equals(suggestion.key)) {
+                    terminals[i] = suggestion;
+                    return;
+                }
+            }
+            terminals = Arrays.copyOf(terminals, terminals.length + 1);
+            terminals[terminals.length - 1] = suggestion;
+        }
+        
+        private void removeTerminal(String key) {
+            if (terminals == null) {
+                return;
+            }
+            for (int i = 0; i < terminals.length; i++) {
+                if (terminals[i].key.equals(key)) {
+                    Suggestion[] shrunk = new Suggestion[terminals.length - 1];
+                    System.arraycopy(terminals, 0, shrunk, 0, i);
+                    System.arraycopy(terminals, i + 1, shrunk, i, terminals.length - i - 1);
+                    terminals = shrunk.length == 0 ? null : shrunk;
+                    return;
+                }
+            }
+        }
+        
+        // Keeps top sorted by weight, descending, with at most TOP_K distinct suggestions
+        private void offer(Suggestion suggestion) {
+            removeFromTop(suggestion.key);
+            if (topSize == TOP_K && top[topSize - 1].weight >= suggestion.weight) {
+                return;
+            }
+            if (top.length < TOP_K && topSize == top.length) {
+                top = Arrays.copyOf(top, Math.min(TOP_K, Math.max(2, top.length * 2)));
+            }
+            int at = topSize < TOP_K ? topSize : TOP_K - 1;
+            while (at > 0 && top[at - 1].weight < suggestion.weight) {
+                if (at < TOP_K) {
+                    top[at] = top[at - 1];
+                }
+                at--;
+            }
+            top[at] = suggestion;
+            if (topSize < TOP_K) {
+                topSize++;
+            }
+        }
+        
+        private boolean removeFromTop(String key) {
+            for (int i = 0; i < topSize; i++) {
+                if (top[i].key.equals(key)) {
+                    System.arraycopy(top, i + 1, top, i, topSize - i - 1);
+                    top[--topSize] = null;
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        // Rebuilds the cached top list after one of its members dropped out. Each child already
+        // holds the best of its own subtree, so its list plus this node's terminals is enough.
+        private void refill() {
+            top = new Suggestion[0];
+            topSize = 0;
+            if (terminals != null) {
+                for (Suggestion suggestion : terminals) {
+                    offer(suggestion);
+                }
+            }
+            for (Node child : children) {
+                for (int i = 0; i < child.topSize; i++) {
+                    offer(child.top[i]);
+                }
+            }
+        }
+        
+        private static char[] insertAt(char[] array, int at, char c) {
+            char[] grown = new char[array.length + 1];
+            System.arraycopy(array, 0, grown, 0, at);
+            grown[at] = c;
+            System.arraycopy(array, at, grown, at + 1, array.length - at);
+            return grown;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.wishcrate.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Tokenizer and light English stemmer shared by the in-memory catalog indexes.
+ * Index and query text must go through the same analysis so terms line up.
+ */
+public final class TextAnalyzer {
+    
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "in",
+            "is", "it", "of", "on", "or", "the", "to", "with");
+    
+    private TextAnalyzer() {
+    }
+    
+    /**
+     * Splits text into lower-cased alphanumeric tokens without stemming or stop word removal.
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i < lower.length(); i++) {
+            if (Character.isLetterOrDigit(lower.charAt(i))) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        if (start >= 0) {
+            tokens.add(lower.substring(start));
+        }
+        return tokens;
+    }
+    
+    /**
+     * Tokenizes, drops stop words and stems. Used for both indexing and querying.
+     */
+    public static List<String> analyze(String text) {
+        List<String> tokens = tokenize(text);
+        List<String> terms = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            if (!STOP_WORDS.contains(token)) {
+                terms.add(stem(token));
+            }
+        }
+        return terms;
+    }
+    
+    static String stem(String token) {
+        if (token.length() <= 3 || !Character.isLetter(token.charAt(token.length() - 1))) {
+            return token;
+        }
+        String word = token;
+        if (word.endsWith("ies") && word.length() > 4) {
+            word = word.substring(0, word.length() - 3) + "y";
+        } else if (word.endsWith("sses")) {
+            word = word.substring(0, word.length() - 2);
+        } else if (word.endsWith("es") && (word.endsWith("xes") || word.endsWith("ches")
+                || word.endsWith("shes") || word.endsWith("zes"))) {
+            word = word.substring(0, word.length() - 2);
+        } else if (word.endsWith("s") && !word.endsWith("ss") && !word.endsWith("us") && !word.endsWith("is")) {
+            word = word.substring(0, word.length() - 1);
+        }
+        
+        if (word.endsWith("ing") && word.length() > 5) {
+            word = undouble(word.substring(0, word.length() - 3));
+        } else if (word.endsWith("ed") && word.length() > 4) {
+            word = undouble(word.substring(0, word.length() - 2));
+        } else if (word.endsWith("ly") && word.length() > 4) {
+            word = word.substring(0, word.length() - 2);
+        }
+        return word;
+    }
+    
+    private static String undouble(String word) {
+        int n = word.length();
+        if (n > 2 && word.charAt(n - 1) == word.charAt(n - 2)
+                && "lsz".indexOf(word.charAt(n - 1)) < 0) {
+            return word.substring(0, n - 1);
+        }
+        return word;
+    }
+}
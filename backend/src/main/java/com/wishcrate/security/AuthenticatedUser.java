@@ -0,0 +1,66 @@
+package com.wishcrate.security;
+
+import java.security.Principal;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.wishcrate.model.User;
+
+/**
+ * The principal of a JWT-authenticated request: just the id, email and role, so services can
+ * work with the current user without loading the {@link User} entity.
+ */
+public final class AuthenticatedUser implements Principal {
+    
+    private final Long id;
+    private final String email;
+    private final User.Role role;
+    
+    public AuthenticatedUser(Long id, String email, User.Role role) {
+        this.id = id;
+        this.email = email;
+        this.role = role;
+    }
+    
+    /**
+     * The principal of the current request; fails when the request is not authenticated with a token.
+     */
+    public static AuthenticatedUser current() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof AuthenticatedUser user)) {
+            throw new RuntimeException("User not found");
+        }
+        return user;
+    }
+    
+    public Long getId() {
+        return id;
+    }
+    
+    public String getEmail() {
+        return email;
+    }
+    
+    public User.Role getRole() {
+        return role;
+    }
+    
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return List.of(new SimpleGrantedAuthority("ROLE_" + role.name()));
+    }
+    
+    @Override
+    public String getName() {
+        return email;
+    }
+    
+    @Override
+    public String toString() {
+        return email;
+    }
+}
@@ -2,9 +2,10 @@ package com.wishcrate.security;
 
 import java.io.IOException;
 
+import io.jsonwebtoken.Claims;
+
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
@@ -15,15 +16,22 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
+import com.wishcrate.model.User;
+
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     
     private final JwtTokenProvider jwtTokenProvider;
     private final UserDetailsService userDetailsService;
+    private final UserStatusCache userStatusCache;
+    private final TokenRevocationStore tokenRevocationStore;
     
-    public JwtAuthenticationFilter(JwtTokenProvider jwtTokenProvider, UserDetailsService userDetailsService) {
+    public JwtAuthenticationFilter(JwtTokenProvider jwtTokenProvider, UserDetailsService userDetailsService,
+                                   UserStatusCache userStatusCache, TokenRevocationStore tokenRevocationStore) {
         this.jwtTokenProvider = jwtTokenProvider;
         this.userDetailsService = userDetailsService;
+        this.userStatusCache = userStatusCache;
+        this.tokenRevocationStore = tokenRevocationStore;
     }
     
     @Override
@@ -33,7 +41,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         
         final String authHeader = request.getHeader("Authorization");
         final String jwt;
-        String userEmail = null;
+        final Claims claims;
         
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             filterChain.doFilter(request, response);
@@ -42,21 +50,28 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         
         jwt = authHeader.substring(7);
         try {
-            userEmail = jwtTokenProvider.extractUsername(jwt);
+            // The only signature check for this request; everything below reads these claims
+            claims = jwtTokenProvider.parseClaims(jwt);
         } catch (Exception e) {
             // Token is malformed or expired — skip authentication
             filterChain.doFilter(request, response);
             return;
         }
         
-        if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
+        if (tokenRevocationStore.isRevoked(claims.getId(), claims.getExpiration())) {
+            // Logged out or revoked — skip authentication
+            filterChain.doFilter(request, response);
+            return;
+        }
+        
+        if (claims.getSubject() != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            AuthenticatedUser user = resolveUser(claims);
             
-            if (jwtTokenProvider.validateToken(jwt, userDetails)) {
+            if (user != null) {
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                        userDetails,
+                        user,
                         null,
-                        userDetails.getAuthorities()
+                        user.getAuthorities()
                 );
                 authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authToken);
@@ -64,4 +79,20 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         filterChain.doFilter(request, response);
     }
+    
+    /**
+     * The principal for a token whose signature and expiry have been checked, or null when its
+     * account is gone or disabled. Tokens issued before the user id claim existed still resolve
+     * through the email lookup.
+     */
+    private AuthenticatedUser resolveUser(Claims claims) {
+        String userEmail = claims.getSubject();
+        Long userId = jwtTokenProvider.getUserId(claims);
+        if (userId == null) {
+            User legacy = (User) userDetailsService.loadUserByUsername(userEmail);
+            return legacy.isEnabled() ? new AuthenticatedUser(legacy.getId(), legacy.getEmail(), legacy.getRole()) : null;
+        }
+        AuthenticatedUser user = userStatusCache.get(userId);
+        return user != null && user.getEmail().equals(userEmail) ? user : null;
+    }
 }
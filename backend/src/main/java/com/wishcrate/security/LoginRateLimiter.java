@@ -0,0 +1,59 @@
+package com.wishcrate.security;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.wishcrate.dto.RateLimitStatsDTO;
+
+/**
+ * Per-client-address and per-account limits on sign-in and registration attempts, checked
+ * before any password is hashed. The account limit slows guessing against one address spread
+ * over many clients; the address limit slows one client spraying many accounts.
+ * <p>
+ * The address is {@code getRemoteAddr()}, which is the real client only because
+ * {@code server.forward-headers-strategy} resolves it from a trusted proxy's X-Forwarded-For.
+ * Without that, every client behind the proxy would share one address bucket.
+ */
+@Component
+public class LoginRateLimiter {
+    
+    private final TokenBucketLimiter byAddress;
+    private final TokenBucketLimiter byAccount;
+    private final LongAdder limitedByAddress = new LongAdder();
+    private final LongAdder limitedByAccount = new LongAdder();
+    
+    public LoginRateLimiter(@Value("${app.auth.rate-limit.slots:16384}") int slots,
+                            @Value("${app.auth.rate-limit.ip.capacity:20}") int ipCapacity,
+                            @Value("${app.auth.rate-limit.ip.per-minute:10}") int ipPerMinute,
+                            @Value("${app.auth.rate-limit.account.capacity:5}") int accountCapacity,
+                            @Value("${app.auth.rate-limit.account.per-minute:2}") int accountPerMinute) {
+        this.byAddress = new TokenBucketLimiter(slots, ipCapacity, ipPerMinute);
+        this.byAccount = new TokenBucketLimiter(slots, accountCapacity, accountPerMinute);
+    }
+    
+    public void checkLogin(String clientAddress, String email) {
+        checkAddress(clientAddress);
+        if (email != null && !byAccount.tryAcquire(email.trim().toLowerCase(Locale.ROOT))) {
+            limitedByAccount.increment();
+            throw new RuntimeException("Too many sign-in attempts for this account, please try again later");
+        }
+    }
+    
+    public void checkRegister(String clientAddress) {
+        checkAddress(clientAddress);
+    }
+    
+    public RateLimitStatsDTO stats() {
+        return new RateLimitStatsDTO(limitedByAddress.sum(), limitedByAccount.sum());
+    }
+    
+    private void checkAddress(String clientAddress) {
+        if (!byAddress.tryAcquire(clientAddress)) {
+            limitedByAddress.increment();
+            throw new RuntimeException("Too many sign-in attempts, please try again later");
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.wishcrate.security;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Token buckets in a fixed table of atomic slots, one slot per hashed key. Each slot packs its
+ * token count and last refill time into one long updated by compare-and-set, so there are no
+ * locks and no per-key allocation. Keys that share a slot share its bucket, which only errs
+ * towards limiting; a large enough table keeps that rare.
+ */
+public class TokenBucketLimiter {
+    
+    // One token is UNIT units; the bucket gains permitsPerMinute units per millisecond
+    private static final long UNIT = 60_000;
+    private static final int TOKEN_BITS = 26;
+    private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+    
+    private final AtomicLongArray slots;
+    private final int mask;
+    private final long capacity;
+    private final long refillPerMilli;
+    private final long epoch = System.currentTimeMillis() - 1;
+    
+    /**
+     * @param slots table size, rounded up to a power of two
+     * @param capacity burst size in tokens
+     * @param permitsPerMinute steady refill rate in tokens
+     */
+    public TokenBucketLimiter(int slots, int capacity, int permitsPerMinute) {
+        if (capacity <= 0 || capacity * UNIT > TOKEN_MASK || permitsPerMinute <= 0) {
+            throw new IllegalArgumentException("Unsupported token bucket: capacity " + capacity
+                    + ", " + permitsPerMinute + " per minute");
+        }
+        int size = Integer.highestOneBit(Math.max(2, slots - 1)) << 1;
+        this.slots = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.capacity = capacity * UNIT;
+        this.refillPerMilli = permitsPerMinute;
+    }
+    
+    /**
+     * Takes one token from the key's bucket; false if it is empty.
+     */
+    public boolean tryAcquire(String key) {
+        int slot = spread(key.hashCode()) & mask;
+        long now = System.currentTimeMillis() - epoch;
+        while (true) {
+            long current = slots.get(slot);
+            long tokens = capacity;
+            if (current != 0) {
+                long last = current >>> TOKEN_BITS;
+                tokens = Math.min(capacity, (current & TOKEN_MASK) + Math.max(0, now - last) * refillPerMilli);
+            }
+            if (tokens < UNIT) {
+                return false;
+            }
+            if (slots.compareAndSet(slot, current, (now << TOKEN_BITS) | (tokens - UNIT))) {
+                return true;
+            }
+        }
+    }
+    
+    private static int spread(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
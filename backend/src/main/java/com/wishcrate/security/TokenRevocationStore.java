@@ -0,0 +1,136 @@
+package com.wishcrate.security;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.wishcrate.model.RevokedToken;
+import com.wishcrate.repository.RevokedTokenRepository;
+import com.wishcrate.util.BloomFilter;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Token ids (jti) revoked before their expiry, grouped into buckets by expiry time. A token only
+ * needs remembering until it would have expired anyway, so whole buckets are dropped once their
+ * window has passed. Each bucket keeps a Bloom filter in front of its id set: the usual answer,
+ * "not revoked", costs a few bit probes and never touches the database.
+ * <p>
+ * Revocations are written to {@code revoked_tokens} and reloaded at startup. Other instances
+ * only see a revocation after their next restart.
+ */
+@Component
+public class TokenRevocationStore implements SmartInitializingSingleton {
+    
+    private static final Logger log = LoggerFactory.getLogger(TokenRevocationStore.class);
+    
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final long bucketMillis;
+    private final int expectedPerBucket;
+    
+    // Keyed by expiry time / bucketMillis
+    private final ConcurrentSkipListMap<Long, Bucket> buckets = new ConcurrentSkipListMap<>();
+    
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "token-revocation-sweeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    public TokenRevocationStore(RevokedTokenRepository revokedTokenRepository,
+                                @Value("${app.auth.revocation.bucket-width:3600000}") long bucketMillis,
+                                @Value("${app.auth.revocation.expected-per-bucket:10000}") int expectedPerBucket) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.bucketMillis = bucketMillis;
+        this.expectedPerBucket = expectedPerBucket;
+    }
+    
+    @Override
+    public void afterSingletonsInstantiated() {
+        List<RevokedToken> revoked = revokedTokenRepository.findByExpiresAtAfter(LocalDateTime.now());
+        for (RevokedToken token : revoked) {
+            add(token.getJti(), token.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+        log.info("Loaded {} revoked tokens into {} buckets", revoked.size(), buckets.size());
+        sweeper.scheduleWithFixedDelay(this::sweep, bucketMillis, bucketMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Whether a token with this id and expiry was revoked. Tokens without an id predate
+     * revocation support and are never reported as revoked.
+     */
+    public boolean isRevoked(String jti, Date expiration) {
+        if (jti == null || expiration == null) {
+            return false;
+        }
+        Bucket bucket = buckets.get(expiration.getTime() / bucketMillis);
+        return bucket != null && bucket.filter.mightContain(jti) && bucket.ids.contains(jti);
+    }
+    
+    public void revoke(String jti, Date expiration) {
+        if (jti == null || expiration == null || expiration.getTime() <= System.currentTimeMillis()
+                || isRevoked(jti, expiration)) {
+            return;
+        }
+        if (!revokedTokenRepository.existsByJti(jti)) {
+            revokedTokenRepository.save(RevokedToken.builder()
+                    .jti(jti)
+                    .expiresAt(LocalDateTime.ofInstant(expiration.toInstant(), ZoneId.systemDefault()))
+                    .build());
+        }
+        add(jti, expiration.getTime());
+    }
+    
+    public int size() {
+        return buckets.values().stream().mapToInt(bucket -> bucket.ids.size()).sum();
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+    
+    private void add(String jti, long expiresAtMillis) {
+        Bucket bucket = buckets.computeIfAbsent(expiresAtMillis / bucketMillis, key -> new Bucket(expectedPerBucket));
+        bucket.ids.add(jti);
+        bucket.filter.add(jti);
+    }
+    
+    // Drops buckets whose whole window has expired, along with their rows
+    private void sweep() {
+        try {
+            long now = System.currentTimeMillis();
+            buckets.headMap(now / bucketMillis).clear();
+            int deleted = revokedTokenRepository.deleteExpired(
+                    LocalDateTime.ofInstant(Instant.ofEpochMilli(now), ZoneId.systemDefault()));
+            if (deleted > 0) {
+                log.debug("Purged {} expired token revocations", deleted);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Token revocation sweep failed", e);
+        }
+    }
+    
+    private static final class Bucket {
+        private final Set<String> ids = ConcurrentHashMap.newKeySet();
+        private final BloomFilter filter;
+    
+        private Bucket(int expectedInsertions) {
+            this.filter = new BloomFilter(expectedInsertions, 0.01);
+        }
+    }
+}
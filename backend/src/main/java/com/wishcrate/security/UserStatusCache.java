@@ -0,0 +1,77 @@
+package com.wishcrate.security;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.wishcrate.event.UserStatusChangedEvent;
+import com.wishcrate.model.User;
+import com.wishcrate.repository.UserRepository;
+
+/**
+ * Short-lived cache of each user's email, role and enabled flag, loaded by primary key. Token
+ * claims are only trusted as far as this cache agrees: a disabled or deleted account, or a
+ * changed role, takes effect once its entry expires or is evicted.
+ */
+@Component
+public class UserStatusCache {
+    
+    private final UserRepository userRepository;
+    private final int maxSize;
+    private final long ttlMillis;
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    
+    public UserStatusCache(UserRepository userRepository,
+                           @Value("${app.security.user-cache.max-size:10000}") int maxSize,
+                           @Value("${app.security.user-cache.ttl:60000}") long ttlMillis) {
+        this.userRepository = userRepository;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+    }
+    
+    /**
+     * The current principal for a user id, or null if the account no longer exists or is disabled.
+     */
+    public AuthenticatedUser get(Long userId) {
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(userId);
+        if (entry == null || entry.expiresAt <= now) {
+            entry = load(userId, now);
+        }
+        return entry.user;
+    }
+    
+    public void evict(Long userId) {
+        entries.remove(userId);
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserStatusChanged(UserStatusChangedEvent event) {
+        evict(event.getUserId());
+    }
+    
+    private Entry load(Long userId, long now) {
+        User user = userRepository.findById(userId).orElse(null);
+        Entry entry = new Entry(user != null && user.isEnabled()
+                ? new AuthenticatedUser(user.getId(), user.getEmail(), user.getRole()) : null, now + ttlMillis);
+        if (entries.size() >= maxSize) {
+            // Entries are cheap to reload; dropping them all keeps the bound without tracking recency
+            entries.clear();
+        }
+        entries.put(userId, entry);
+        return entry;
+    }
+    
+    private static final class Entry {
+        private final AuthenticatedUser user;
+        private final long expiresAt;
+    
+        private Entry(AuthenticatedUser user, long expiresAt) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
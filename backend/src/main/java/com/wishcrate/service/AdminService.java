@@ -1,14 +1,24 @@
 package com.wishcrate.service;
 
+import java.util.List;
+
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.wishcrate.cache.ProductCache;
 import com.wishcrate.dto.AdminStatsDTO;
+import com.wishcrate.dto.AuthStatsDTO;
+import com.wishcrate.dto.CacheStatsDTO;
+import com.wishcrate.event.UserStatusChangedEvent;
 import com.wishcrate.model.Order;
+import com.wishcrate.model.User;
 import com.wishcrate.repository.CategoryRepository;
 import com.wishcrate.repository.OrderRepository;
 import com.wishcrate.repository.ProductRepository;
 import com.wishcrate.repository.UserRepository;
+import com.wishcrate.security.LoginRateLimiter;
+import com.wishcrate.security.PooledPasswordEncoder;
 
 @Service
 @Transactional(readOnly = true)
@@ -18,15 +28,27 @@ public class AdminService {
     private final OrderRepository orderRepository;
     private final UserRepository userRepository;
     private final CategoryRepository categoryRepository;
+    private final ProductCache productCache;
+    private final PooledPasswordEncoder passwordEncoder;
+    private final LoginRateLimiter loginRateLimiter;
+    private final ApplicationEventPublisher eventPublisher;
     
     public AdminService(ProductRepository productRepository, 
                        OrderRepository orderRepository,
                        UserRepository userRepository,
-                       CategoryRepository categoryRepository) {
+                       CategoryRepository categoryRepository,
+                       ProductCache productCache,
+                       PooledPasswordEncoder passwordEncoder,
+                       LoginRateLimiter loginRateLimiter,
+                       ApplicationEventPublisher eventPublisher) {
         this.productRepository = productRepository;
         this.orderRepository = orderRepository;
         this.userRepository = userRepository;
         this.categoryRepository = categoryRepository;
+        this.productCache = productCache;
+        this.passwordEncoder = passwordEncoder;
+        this.loginRateLimiter = loginRateLimiter;
+        this.eventPublisher = eventPublisher;
     }
     
     public AdminStatsDTO getAdminStats() {
@@ -50,4 +72,25 @@ public class AdminService {
             pendingOrders
         );
     }
+    
+    public List<CacheStatsDTO> getCacheStats() {
+        return List.of(productCache.stats());
+    }
+    
+    public AuthStatsDTO getAuthStats() {
+        return new AuthStatsDTO(passwordEncoder.stats(), loginRateLimiter.stats());
+    }
+    
+    /**
+     * Enables or disables an account. Its existing tokens stop working as soon as this commits,
+     * since the cached status is dropped then.
+     */
+    @Transactional
+    public void setUserEnabled(Long userId, boolean enabled) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        user.setEnabled(enabled);
+        userRepository.save(user);
+        eventPublisher.publishEvent(new UserStatusChangedEvent(userId));
+    }
 }
@@ -1,5 +1,6 @@
 package com.wishcrate.service;
 
+import com.wishcrate.cache.RegisteredEmails;
 import com.wishcrate.dto.AuthResponse;
 import com.wishcrate.dto.LoginRequest;
 import com.wishcrate.dto.RegisterRequest;
@@ -8,11 +9,17 @@ import com.wishcrate.model.User;
 import com.wishcrate.repository.CartRepository;
 import com.wishcrate.repository.UserRepository;
 import com.wishcrate.security.JwtTokenProvider;
+import com.wishcrate.security.LoginRateLimiter;
+import com.wishcrate.security.TokenRevocationStore;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 public class AuthService {
@@ -22,20 +29,63 @@ public class AuthService {
     private final PasswordEncoder passwordEncoder;
     private final JwtTokenProvider jwtTokenProvider;
     private final AuthenticationManager authenticationManager;
+    private final LoginRateLimiter loginRateLimiter;
+    private final TokenRevocationStore tokenRevocationStore;
+    private final RegisteredEmails registeredEmails;
+    private final TransactionTemplate transactionTemplate;
     
     public AuthService(UserRepository userRepository, CartRepository cartRepository, 
                       PasswordEncoder passwordEncoder, JwtTokenProvider jwtTokenProvider,
-                      AuthenticationManager authenticationManager) {
+                      AuthenticationManager authenticationManager, LoginRateLimiter loginRateLimiter,
+                      TokenRevocationStore tokenRevocationStore, RegisteredEmails registeredEmails,
+                      PlatformTransactionManager transactionManager) {
         this.userRepository = userRepository;
         this.cartRepository = cartRepository;
         this.passwordEncoder = passwordEncoder;
         this.jwtTokenProvider = jwtTokenProvider;
         this.authenticationManager = authenticationManager;
+        this.loginRateLimiter = loginRateLimiter;
+        this.tokenRevocationStore = tokenRevocationStore;
+        this.registeredEmails = registeredEmails;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
     
-    @Transactional
-    public AuthResponse register(RegisterRequest request) {
-        if (userRepository.existsByEmail(request.getEmail())) {
+    /**
+     * Hashes the password before touching the database, so waiting for a hashing thread never
+     * holds a pooled connection (open-in-view keeps one from the first query to the end of the
+     * request).
+     */
+    public AuthResponse register(RegisterRequest request, String clientAddress) {
+        loginRateLimiter.checkRegister(clientAddress);
+        String passwordHash = passwordEncoder.encode(request.getPassword());
+        
+        User savedUser;
+        try {
+            savedUser = transactionTemplate.execute(status -> createUser(request, passwordHash));
+        } catch (DataIntegrityViolationException e) {
+            // Registered concurrently, or on another instance since this one loaded its emails;
+            // any other constraint failure is not about the email
+            if (userRepository.existsByEmail(request.getEmail())) {
+                throw new RuntimeException("Email already exists", e);
+            }
+            throw e;
+        }
+        registeredEmails.add(savedUser.getEmail());
+        
+        String token = jwtTokenProvider.generateToken(savedUser);
+        
+        return AuthResponse.builder()
+                .token(token)
+                .email(savedUser.getEmail())
+                .firstName(savedUser.getFirstName())
+                .lastName(savedUser.getLastName())
+                .role(savedUser.getRole().name())
+                .build();
+    }
+    
+    private User createUser(RegisterRequest request, String passwordHash) {
+        // Only a possible match needs the database; the unique constraint catches the rest
+        if (registeredEmails.mightExist(request.getEmail()) && userRepository.existsByEmail(request.getEmail())) {
             throw new RuntimeException("Email already exists");
         }
         
@@ -43,7 +93,7 @@ public class AuthService {
                 .firstName(request.getFirstName())
                 .lastName(request.getLastName())
                 .email(request.getEmail())
-                .password(passwordEncoder.encode(request.getPassword()))
+                .password(passwordHash)
                 .phoneNumber(request.getPhoneNumber())
                 .role(User.Role.USER)
                 .enabled(true)
@@ -56,19 +106,11 @@ public class AuthService {
                 .user(savedUser)
                 .build();
         cartRepository.save(cart);
-        
-        String token = jwtTokenProvider.generateToken(user.getEmail());
-        
-        return AuthResponse.builder()
-                .token(token)
-                .email(savedUser.getEmail())
-                .firstName(savedUser.getFirstName())
-                .lastName(savedUser.getLastName())
-                .role(savedUser.getRole().name())
-                .build();
+        return savedUser;
     }
     
-    public AuthResponse login(LoginRequest request) {
+    public AuthResponse login(LoginRequest request, String clientAddress) {
+        loginRateLimiter.checkLogin(clientAddress, request.getEmail());
         authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(
                         request.getEmail(),
@@ -79,7 +121,7 @@ public class AuthService {
         User user = userRepository.findByEmail(request.getEmail())
                 .orElseThrow(() -> new RuntimeException("User not found"));
         
-        String token = jwtTokenProvider.generateToken(user.getEmail());
+        String token = jwtTokenProvider.generateToken(user);
         
         return AuthResponse.builder()
                 .token(token)
@@ -89,4 +131,21 @@ public class AuthService {
                 .role(user.getRole().name())
                 .build();
     }
+    
+    /**
+     * Revokes a token until it expires. Holding a valid token is the only proof required, so
+     * this serves both logout and revoking a token from another session.
+     */
+    public void revokeToken(String token) {
+        Claims claims;
+        try {
+            claims = jwtTokenProvider.parseClaims(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            throw new RuntimeException("Invalid token");
+        }
+        if (claims.getId() == null) {
+            throw new RuntimeException("Token cannot be revoked");
+        }
+        tokenRevocationStore.revoke(claims.getId(), claims.getExpiration());
+    }
 }
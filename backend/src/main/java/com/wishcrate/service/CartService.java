@@ -1,141 +1,191 @@
 package com.wishcrate.service;
 
+import com.wishcrate.cart.CartStore;
 import com.wishcrate.dto.CartDTO;
 import com.wishcrate.dto.CartItemDTO;
-import com.wishcrate.model.Cart;
-import com.wishcrate.model.CartItem;
-import com.wishcrate.model.Product;
-import com.wishcrate.model.User;
-import com.wishcrate.repository.CartRepository;
-import com.wishcrate.repository.ProductRepository;
-import com.wishcrate.repository.UserRepository;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import com.wishcrate.dto.CartOperationDTO;
+import com.wishcrate.dto.ProductDTO;
+import com.wishcrate.dto.ProductFields;
+import com.wishcrate.security.AuthenticatedUser;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+/**
+ * Cart operations against the write-behind {@link CartStore}; none of them opens a database
+ * transaction. Product details come from the product cache where possible. Cart items are
+ * identified by their product id, since a cart holds one line per product and a new line has
+ * no row id until it is written.
+ */
 @Service
 public class CartService {
     
-    private final CartRepository cartRepository;
-    private final ProductRepository productRepository;
-    private final UserRepository userRepository;
+    private final CartStore cartStore;
+    private final ProductService productService;
+    private final int maxItems;
     
-    public CartService(CartRepository cartRepository, ProductRepository productRepository, UserRepository userRepository) {
-        this.cartRepository = cartRepository;
-        this.productRepository = productRepository;
-        this.userRepository = userRepository;
-    }
-    
-    private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String email = authentication.getName();
-        return userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+    public CartService(CartStore cartStore, ProductService productService,
+                       @Value("${app.cart.max-items:100}") int maxItems) {
+        this.cartStore = cartStore;
+        this.productService = productService;
+        this.maxItems = maxItems;
     }
     
     public CartDTO getCart() {
-        User user = getCurrentUser();
-        Cart cart = cartRepository.findByUserId(user.getId())
-                .orElseGet(() -> {
-                    Cart newCart = Cart.builder().user(user).build();
-                    return cartRepository.save(newCart);
-                });
-        return convertToDTO(cart);
+        Long userId = AuthenticatedUser.current().getId();
+        return convertToDTO(cartStore.get(userId));
     }
     
-    @Transactional
     public CartDTO addToCart(Long productId, Integer quantity) {
-        User user = getCurrentUser();
-        Cart cart = cartRepository.findByUserId(user.getId())
-                .orElseGet(() -> {
-                    Cart newCart = Cart.builder().user(user).build();
-                    return cartRepository.save(newCart);
-                });
-        
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new RuntimeException("Product not found"));
+        Long userId = AuthenticatedUser.current().getId();
+        ProductDTO product = productService.getProductById(productId, ProductFields.all());
         
         if (product.getStockQuantity() < quantity) {
             throw new RuntimeException("Insufficient stock");
         }
         
-        // Check if product already in cart
-        CartItem existingItem = cart.getItems().stream()
-                .filter(item -> item.getProduct().getId().equals(productId))
-                .findFirst()
-                .orElse(null);
-        
-        if (existingItem != null) {
-            existingItem.setQuantity(existingItem.getQuantity() + quantity);
-        } else {
-            BigDecimal price = product.getDiscountPrice() != null ? 
-                    product.getDiscountPrice() : product.getPrice();
-            
-            CartItem newItem = CartItem.builder()
-                    .cart(cart)
-                    .product(product)
-                    .quantity(quantity)
-                    .price(price)
-                    .build();
-            cart.getItems().add(newItem);
-        }
-        
-        Cart savedCart = cartRepository.save(cart);
-        return convertToDTO(savedCart);
+        BigDecimal price = product.getDiscountPrice() != null ?
+                product.getDiscountPrice() : product.getPrice();
+        CartStore.Snapshot cart = cartStore.update(userId, lines -> {
+            CartStore.Line existingLine = lines.get(productId);
+            if (existingLine != null) {
+                lines.put(productId, existingLine.withQuantity(existingLine.getQuantity() + quantity));
+            } else {
+                if (lines.size() >= maxItems) {
+                    throw new RuntimeException("A cart can hold at most " + maxItems + " different products");
+                }
+                lines.put(productId, new CartStore.Line(productId, quantity, price));
+            }
+        });
+        return convertToDTO(cart);
     }
     
-    @Transactional
     public CartDTO updateCartItem(Long cartItemId, Integer quantity) {
-        User user = getCurrentUser();
-        Cart cart = cartRepository.findByUserId(user.getId())
-                .orElseThrow(() -> new RuntimeException("Cart not found"));
-        
-        CartItem cartItem = cart.getItems().stream()
-                .filter(item -> item.getId().equals(cartItemId))
-                .findFirst()
-                .orElseThrow(() -> new RuntimeException("Cart item not found"));
-        
-        if (quantity <= 0) {
-            cart.getItems().remove(cartItem);
-        } else {
-            if (cartItem.getProduct().getStockQuantity() < quantity) {
+        Long userId = AuthenticatedUser.current().getId();
+        if (quantity > 0) {
+            ProductDTO product = productService.getProductById(cartItemId, ProductFields.all());
+            if (product.getStockQuantity() < quantity) {
                 throw new RuntimeException("Insufficient stock");
             }
-            cartItem.setQuantity(quantity);
         }
         
-        Cart savedCart = cartRepository.save(cart);
-        return convertToDTO(savedCart);
+        CartStore.Snapshot cart = cartStore.update(userId, lines -> {
+            CartStore.Line line = lines.get(cartItemId);
+            if (line == null) {
+                throw new RuntimeException("Cart item not found");
+            }
+            if (quantity <= 0) {
+                lines.remove(cartItemId);
+            } else {
+                lines.put(cartItemId, line.withQuantity(quantity));
+            }
+        });
+        return convertToDTO(cart);
     }
     
-    @Transactional
-    public void removeFromCart(Long cartItemId) {
-        User user = getCurrentUser();
-        Cart cart = cartRepository.findByUserId(user.getId())
-                .orElseThrow(() -> new RuntimeException("Cart not found"));
+    /**
+     * Applies the operations in order as one change: the products they add or update are loaded
+     * together, and if any operation fails (unknown product or line, or a final quantity above
+     * stock) the cart is left as it was.
+     */
+    public CartDTO applyOperations(List<CartOperationDTO> operations) {
+        Long userId = AuthenticatedUser.current().getId();
+        Set<Long> stockChecked = new LinkedHashSet<>();
+        for (CartOperationDTO operation : operations) {
+            if (operation.getProductId() == null) {
+                throw new RuntimeException("Cart operation without productId");
+            }
+            String op = operation.getOp() != null ? operation.getOp().toLowerCase(Locale.ROOT) : "";
+            if (op.equals("add") || (op.equals("update") && operation.getQuantity() != null && operation.getQuantity() > 0)) {
+                stockChecked.add(operation.getProductId());
+            }
+        }
+        Map<Long, ProductDTO> products = productService.getProductsByIds(List.copyOf(stockChecked), ProductFields.all())
+                .stream()
+                .collect(Collectors.toMap(ProductDTO::getId, Function.identity()));
         
-        cart.getItems().removeIf(item -> item.getId().equals(cartItemId));
-        cartRepository.save(cart);
+        CartStore.Snapshot cart = cartStore.update(userId, lines -> {
+            for (CartOperationDTO operation : operations) {
+                apply(lines, operation, products);
+            }
+            for (Long productId : stockChecked) {
+                CartStore.Line line = lines.get(productId);
+                if (line != null && products.get(productId).getStockQuantity() < line.getQuantity()) {
+                    throw new RuntimeException("Insufficient stock for product: " + products.get(productId).getName());
+                }
+            }
+            if (lines.size() > maxItems) {
+                throw new RuntimeException("A cart can hold at most " + maxItems + " different products");
+            }
+        });
+        return convertToDTO(cart);
+    }
+    
+    private void apply(Map<Long, CartStore.Line> lines, CartOperationDTO operation, Map<Long, ProductDTO> products) {
+        Long productId = operation.getProductId();
+        Integer quantity = operation.getQuantity();
+        switch (operation.getOp() != null ? operation.getOp().toLowerCase(Locale.ROOT) : "") {
+            case "add" -> {
+                if (quantity == null || quantity <= 0) {
+                    throw new RuntimeException("Quantity to add must be positive");
+                }
+                ProductDTO product = products.get(productId);
+                if (product == null) {
+                    throw new RuntimeException("Product not found: " + productId);
+                }
+                CartStore.Line existingLine = lines.get(productId);
+                if (existingLine != null) {
+                    lines.put(productId, existingLine.withQuantity(existingLine.getQuantity() + quantity));
+                } else {
+                    BigDecimal price = product.getDiscountPrice() != null ?
+                            product.getDiscountPrice() : product.getPrice();
+                    lines.put(productId, new CartStore.Line(productId, quantity, price));
+                }
+            }
+            case "update" -> {
+                CartStore.Line line = lines.get(productId);
+                if (line == null) {
+                    throw new RuntimeException("Cart item not found");
+                }
+                if (quantity == null || quantity <= 0) {
+                    lines.remove(productId);
+                } else {
+                    lines.put(productId, line.withQuantity(quantity));
+                }
+            }
+            case "remove" -> lines.remove(productId);
+            default -> throw new RuntimeException("Unknown cart operation: " + operation.getOp());
+        }
+    }
+    
+    public void removeFromCart(Long cartItemId) {
+        Long userId = AuthenticatedUser.current().getId();
+        cartStore.update(userId, lines -> lines.remove(cartItemId));
     }
     
-    @Transactional
     public void clearCart() {
-        User user = getCurrentUser();
-        Cart cart = cartRepository.findByUserId(user.getId())
-                .orElseThrow(() -> new RuntimeException("Cart not found"));
-        
-        cart.getItems().clear();
-        cartRepository.save(cart);
+        Long userId = AuthenticatedUser.current().getId();
+        cartStore.update(userId, Map::clear);
     }
     
-    private CartDTO convertToDTO(Cart cart) {
-        List<CartItemDTO> itemDTOs = cart.getItems().stream()
-                .map(this::convertItemToDTO)
+    private CartDTO convertToDTO(CartStore.Snapshot cart) {
+        List<Long> productIds = cart.getLines().stream()
+                .map(CartStore.Line::getProductId)
+                .collect(Collectors.toList());
+        Map<Long, ProductDTO> products = productService.getProductsByIds(productIds, ProductFields.all())
+                .stream()
+                .collect(Collectors.toMap(ProductDTO::getId, Function.identity()));
+        
+        List<CartItemDTO> itemDTOs = cart.getLines().stream()
+                .map(line -> convertItemToDTO(line, products.get(line.getProductId())))
                 .collect(Collectors.toList());
         
         BigDecimal totalAmount = itemDTOs.stream()
@@ -147,23 +197,24 @@ public class CartService {
                 .sum();
         
         return CartDTO.builder()
-                .id(cart.getId())
+                .id(cart.getCartId())
                 .items(itemDTOs)
                 .totalAmount(totalAmount)
                 .totalItems(totalItems)
                 .build();
     }
     
-    private CartItemDTO convertItemToDTO(CartItem item) {
-        BigDecimal subtotal = item.getPrice().multiply(new BigDecimal(item.getQuantity()));
+    private CartItemDTO convertItemToDTO(CartStore.Line line, ProductDTO product) {
+        BigDecimal subtotal = line.getPrice().multiply(new BigDecimal(line.getQuantity()));
+        boolean hasImage = product != null && product.getImages() != null && !product.getImages().isEmpty();
         
         return CartItemDTO.builder()
-                .id(item.getId())
-                .productId(item.getProduct().getId())
-                .productName(item.getProduct().getName())
-                .productImage(item.getProduct().getImages().isEmpty() ? null : item.getProduct().getImages().get(0))
-                .price(item.getPrice())
-                .quantity(item.getQuantity())
+                .id(line.getProductId())
+                .productId(line.getProductId())
+                .productName(product != null ? product.getName() : null)
+                .productImage(hasImage ? product.getImages().get(0) : null)
+                .price(line.getPrice())
+                .quantity(line.getQuantity())
                 .subtotal(subtotal)
                 .build();
     }
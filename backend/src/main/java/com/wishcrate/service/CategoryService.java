@@ -2,9 +2,15 @@ package com.wishcrate.service;
 
 import java.util.List;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.wishcrate.cache.CategoryHierarchy;
+import com.wishcrate.cache.CategoryTree;
+import com.wishcrate.dto.CategoryTreeDTO;
+import com.wishcrate.event.CategoryChangedEvent;
 import com.wishcrate.model.Category;
 import com.wishcrate.repository.CategoryRepository;
 
@@ -13,15 +19,28 @@ import com.wishcrate.repository.CategoryRepository;
 public class CategoryService {
     
     private final CategoryRepository categoryRepository;
+    private final CategoryHierarchy categoryHierarchy;
+    private final CategoryTree categoryTree;
+    private final ApplicationEventPublisher eventPublisher;
     
-    public CategoryService(CategoryRepository categoryRepository) {
+    public CategoryService(CategoryRepository categoryRepository, CategoryHierarchy categoryHierarchy,
+                           CategoryTree categoryTree, ApplicationEventPublisher eventPublisher) {
         this.categoryRepository = categoryRepository;
+        this.categoryHierarchy = categoryHierarchy;
+        this.categoryTree = categoryTree;
+        this.eventPublisher = eventPublisher;
     }
     
     public List<Category> getAllCategories() {
         return categoryRepository.findAll();
     }
     
+    // Served from memory; no transaction needed
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<CategoryTreeDTO> getCategoryTree() {
+        return categoryTree.getRoots();
+    }
+    
     public Category getCategoryById(Long id) {
         return categoryRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Category not found with id: " + id));
@@ -33,20 +52,29 @@ public class CategoryService {
     }
     
     public Category createCategory(Category category) {
-        return categoryRepository.save(category);
+        Category savedCategory = categoryRepository.save(category);
+        eventPublisher.publishEvent(new CategoryChangedEvent(savedCategory.getId()));
+        return savedCategory;
     }
     
     public Category updateCategory(Long id, Category categoryDetails) {
         Category category = getCategoryById(id);
+        if (categoryDetails.getParent() != null
+                && categoryHierarchy.isDescendant(categoryDetails.getParent().getId(), id)) {
+            throw new RuntimeException("Category cannot be moved under itself or one of its subcategories");
+        }
         category.setName(categoryDetails.getName());
         category.setDescription(categoryDetails.getDescription());
         category.setImageUrl(categoryDetails.getImageUrl());
         category.setParent(categoryDetails.getParent());
-        return categoryRepository.save(category);
+        Category savedCategory = categoryRepository.save(category);
+        eventPublisher.publishEvent(new CategoryChangedEvent(id));
+        return savedCategory;
     }
     
     public void deleteCategory(Long id) {
         Category category = getCategoryById(id);
         categoryRepository.delete(category);
+        eventPublisher.publishEvent(new CategoryChangedEvent(id));
     }
 }
@@ -3,63 +3,63 @@ package com.wishcrate.service;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import com.wishcrate.model.Cart;
-import com.wishcrate.model.CartItem;
+import com.wishcrate.cart.CartStore;
+import com.wishcrate.event.OrderCancelledEvent;
+import com.wishcrate.event.OrderPlacedEvent;
+import com.wishcrate.event.ProductChangedEvent;
 import com.wishcrate.model.Order;
 import com.wishcrate.model.OrderItem;
 import com.wishcrate.model.Product;
 import com.wishcrate.model.ShippingAddress;
-import com.wishcrate.model.User;
 import com.wishcrate.repository.AddressRepository;
-import com.wishcrate.repository.CartRepository;
 import com.wishcrate.repository.OrderRepository;
 import com.wishcrate.repository.ProductRepository;
 import com.wishcrate.repository.UserRepository;
+import com.wishcrate.security.AuthenticatedUser;
 
 @Service
 public class OrderService {
     
     private final OrderRepository orderRepository;
-    private final CartRepository cartRepository;
+    private final CartStore cartStore;
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
     private final AddressRepository addressRepository;
+    private final ApplicationEventPublisher eventPublisher;
     
-    public OrderService(OrderRepository orderRepository, CartRepository cartRepository, 
+    public OrderService(OrderRepository orderRepository, CartStore cartStore, 
                        ProductRepository productRepository, UserRepository userRepository, 
-                       AddressRepository addressRepository) {
+                       AddressRepository addressRepository, ApplicationEventPublisher eventPublisher) {
         this.orderRepository = orderRepository;
-        this.cartRepository = cartRepository;
+        this.cartStore = cartStore;
         this.productRepository = productRepository;
         this.userRepository = userRepository;
         this.addressRepository = addressRepository;
-    }
-    
-    private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String email = authentication.getName();
-        return userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+        this.eventPublisher = eventPublisher;
     }
     
     @Transactional
     public Order createOrder(Map<String, String> shippingData, Order.PaymentMethod paymentMethod) {
-        User user = getCurrentUser();
-        Cart cart = cartRepository.findByUserId(user.getId())
-                .orElseThrow(() -> new RuntimeException("Cart not found"));
+        Long userId = AuthenticatedUser.current().getId();
+        // The cart store holds the current cart; its rows may not be written yet
+        List<CartStore.Line> cartLines = cartStore.get(userId).getLines();
         
-        if (cart.getItems().isEmpty()) {
+        if (cartLines.isEmpty()) {
             throw new RuntimeException("Cart is empty");
         }
         
@@ -77,28 +77,41 @@ public class OrderService {
         // Calculate totals
         BigDecimal subtotal = BigDecimal.ZERO;
         List<OrderItem> orderItems = new ArrayList<>();
+        Set<Long> changedProductIds = new LinkedHashSet<>();
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        
+        Map<Long, Product> products = new HashMap<>();
+        for (Product product : productRepository.findAllById(
+                cartLines.stream().map(CartStore.Line::getProductId).collect(Collectors.toList()))) {
+            products.put(product.getId(), product);
+        }
         
-        for (CartItem cartItem : cart.getItems()) {
-            Product product = cartItem.getProduct();
+        for (CartStore.Line cartLine : cartLines) {
+            Product product = products.get(cartLine.getProductId());
+            if (product == null) {
+                throw new RuntimeException("Product not found");
+            }
             
-            if (product.getStockQuantity() < cartItem.getQuantity()) {
+            if (product.getStockQuantity() < cartLine.getQuantity()) {
                 throw new RuntimeException("Insufficient stock for product: " + product.getName());
             }
             
-            BigDecimal itemSubtotal = cartItem.getPrice().multiply(new BigDecimal(cartItem.getQuantity()));
+            BigDecimal itemSubtotal = cartLine.getPrice().multiply(new BigDecimal(cartLine.getQuantity()));
             subtotal = subtotal.add(itemSubtotal);
             
             OrderItem orderItem = OrderItem.builder()
                     .product(product)
-                    .quantity(cartItem.getQuantity())
-                    .price(cartItem.getPrice())
+                    .quantity(cartLine.getQuantity())
+                    .price(cartLine.getPrice())
                     .subtotal(itemSubtotal)
                     .build();
             orderItems.add(orderItem);
             
             // Update stock
-            product.setStockQuantity(product.getStockQuantity() - cartItem.getQuantity());
+            product.setStockQuantity(product.getStockQuantity() - cartLine.getQuantity());
             productRepository.save(product);
+            changedProductIds.add(product.getId());
+            quantities.merge(product.getId(), cartLine.getQuantity(), Integer::sum);
         }
         
         BigDecimal tax = subtotal.multiply(new BigDecimal("0.1")); // 10% tax
@@ -108,7 +121,7 @@ public class OrderService {
         // Create order
         Order order = Order.builder()
                 .orderNumber(generateOrderNumber())
-                .user(user)
+                .user(userRepository.getReferenceById(userId))
                 .subtotal(subtotal)
                 .tax(tax)
                 .shippingCost(shippingCost)
@@ -130,24 +143,24 @@ public class OrderService {
         savedOrder.setOrderItems(orderItems);
         orderRepository.save(savedOrder);
         
-        // Clear cart
-        cart.getItems().clear();
-        cartRepository.save(cart);
+        // The cart store drops the ordered lines once this commits (OrderPlacedEvent)
+        eventPublisher.publishEvent(new ProductChangedEvent(changedProductIds));
+        eventPublisher.publishEvent(new OrderPlacedEvent(savedOrder.getId(), userId, quantities));
         
         return savedOrder;
     }
     
     public Page<Order> getUserOrders(Pageable pageable) {
-        User user = getCurrentUser();
-        return orderRepository.findByUserId(user.getId(), pageable);
+        Long userId = AuthenticatedUser.current().getId();
+        return orderRepository.findByUserId(userId, pageable);
     }
     
     public Order getOrderById(Long orderId) {
-        User user = getCurrentUser();
+        Long userId = AuthenticatedUser.current().getId();
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
         
-        if (!order.getUser().getId().equals(user.getId())) {
+        if (!order.getUser().getId().equals(userId)) {
             throw new RuntimeException("Unauthorized access to order");
         }
         
@@ -170,11 +183,11 @@ public class OrderService {
     
     @Transactional
     public Order cancelOrder(Long orderId) {
-        User user = getCurrentUser();
+        Long userId = AuthenticatedUser.current().getId();
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
         
-        if (!order.getUser().getId().equals(user.getId())) {
+        if (!order.getUser().getId().equals(userId)) {
             throw new RuntimeException("Unauthorized access to order");
         }
         
@@ -186,13 +199,20 @@ public class OrderService {
         order.setStatus(Order.OrderStatus.CANCELLED);
         
         // Restore stock
+        Set<Long> changedProductIds = new LinkedHashSet<>();
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
         for (OrderItem item : order.getOrderItems()) {
             Product product = item.getProduct();
             product.setStockQuantity(product.getStockQuantity() + item.getQuantity());
             productRepository.save(product);
+            changedProductIds.add(product.getId());
+            quantities.merge(product.getId(), item.getQuantity(), Integer::sum);
         }
         
-        return orderRepository.save(order);
+        Order cancelledOrder = orderRepository.save(order);
+        eventPublisher.publishEvent(new ProductChangedEvent(changedProductIds));
+        eventPublisher.publishEvent(new OrderCancelledEvent(cancelledOrder.getId(), quantities));
+        return cancelledOrder;
     }
     
     private String generateOrderNumber() {
@@ -0,0 +1,64 @@
+package com.wishcrate.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fills products.primary_image for rows written before the column existed. The image table
+ * has no order column, so the first image is whichever row the database returns first for the
+ * product, which is the same order Hibernate loads the collection in.
+ */
+@Component
+public class PrimaryImageBackfill implements SmartInitializingSingleton {
+    
+    private static final Logger log = LoggerFactory.getLogger(PrimaryImageBackfill.class);
+    
+    private static final int BATCH_SIZE = 1000;
+    
+    private static final String MISSING_SQL =
+            "SELECT p.id FROM products p WHERE p.primary_image IS NULL AND p.id > ? "
+            + "AND EXISTS (SELECT 1 FROM product_images i WHERE i.product_id = p.id) ORDER BY p.id LIMIT " + BATCH_SIZE;
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    
+    public PrimaryImageBackfill(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+    
+    @Override
+    public void afterSingletonsInstantiated() {
+        long updated = 0;
+        long lastId = 0;
+        List<Long> ids;
+        do {
+            ids = jdbcTemplate.queryForList(MISSING_SQL, Long.class, lastId);
+            if (ids.isEmpty()) {
+                break;
+            }
+            Map<Long, String> first = new LinkedHashMap<>();
+            namedJdbcTemplate.query("SELECT product_id, images FROM product_images WHERE product_id IN (:ids)",
+                    Map.of("ids", ids), rs -> {
+                        first.putIfAbsent(rs.getLong(1), rs.getString(2));
+                    });
+            List<Object[]> values = new ArrayList<>(first.size());
+            first.forEach((id, image) -> values.add(new Object[] {image, id}));
+            jdbcTemplate.batchUpdate("UPDATE products SET primary_image = ? WHERE id = ? AND primary_image IS NULL", values);
+            updated += values.size();
+            lastId = ids.get(ids.size() - 1);
+        } while (ids.size() == BATCH_SIZE);
+        if (updated > 0) {
+            log.info("Backfilled primary images for {} products", updated);
+        }
+    }
+}
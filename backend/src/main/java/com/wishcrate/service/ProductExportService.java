@@ -0,0 +1,318 @@
+package com.wishcrate.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Streams the whole catalog, including images and specifications, as NDJSON or CSV. Products
+ * are read in keyset pages by id, each together with the images and specifications of that id
+ * range in its own short read-only transaction, so memory stays constant and no transaction is
+ * held open against the product tables while the response is written. A page is consistent in
+ * itself; rows changed between pages show up as of the page that reads them.
+ */
+@Service
+public class ProductExportService {
+    
+    private static final Logger log = LoggerFactory.getLogger(ProductExportService.class);
+    
+    private static final String PRODUCTS_SQL =
+            "SELECT p.id, p.sku, p.name, p.description, p.price, p.discount_price, p.stock_quantity, p.brand, "
+            + "p.category_id, c.name AS category_name, p.image_url, p.featured, p.active, p.average_rating, "
+            + "p.total_reviews FROM products p LEFT JOIN categories c ON c.id = p.category_id "
+            + "WHERE p.id > ? ORDER BY p.id LIMIT ?";
+    // No ORDER BY: rows come back in stored order, which is the products' image order
+    private static final String IMAGES_SQL =
+            "SELECT product_id, images FROM product_images WHERE product_id BETWEEN ? AND ?";
+    private static final String SPECIFICATIONS_SQL =
+            "SELECT product_id, spec_key, spec_value FROM product_specifications "
+            + "WHERE product_id BETWEEN ? AND ? ORDER BY product_id, spec_key";
+    
+    private static final String[] CSV_COLUMNS = {
+            "id", "sku", "name", "description", "price", "discountPrice", "stockQuantity", "brand",
+            "categoryId", "category", "imageUrl", "images", "specifications", "featured", "active",
+            "averageRating", "totalReviews"
+    };
+    
+    private static final String PERMIT_INTERCEPTOR = ProductExportService.class.getName() + ".permit";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final long timeoutMillis;
+    private final Semaphore exportPermits;
+    
+    public ProductExportService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                ObjectMapper objectMapper,
+                                @Value("${app.export.batch-size:1000}") int batchSize,
+                                @Value("${app.export.timeout:3600000}") long timeoutMillis,
+                                @Value("${app.export.max-concurrent:2}") int maxConcurrent) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.transactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.timeoutMillis = timeoutMillis;
+        this.exportPermits = new Semaphore(maxConcurrent);
+    }
+    
+    /**
+     * Reserves an export slot up front, so an overloaded server refuses before the response
+     * is committed, and returns the body that performs the export. The slot is given back when
+     * the body finishes, or when the async request ends without it having run, e.g. on timeout.
+     * Only this request gets the long export timeout; other async requests keep the default.
+     */
+    public StreamingResponseBody export(boolean csv, HttpServletRequest request) {
+        // Each export keeps an async worker busy for its whole duration
+        if (!exportPermits.tryAcquire()) {
+            throw new RuntimeException("Too many catalog exports in progress");
+        }
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                exportPermits.release();
+            }
+        };
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(PERMIT_INTERCEPTOR,
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void beforeConcurrentHandling(NativeWebRequest webRequest, Callable<T> task) {
+                        // Called with the request's own async wrapper before async processing starts
+                        if (webRequest instanceof AsyncWebRequest asyncRequest) {
+                            asyncRequest.setTimeout(timeoutMillis);
+                        }
+                    }
+    
+                    @Override
+                    public <T> void afterCompletion(NativeWebRequest webRequest, Callable<T> task) {
+                        release.run();
+                    }
+                });
+        return out -> {
+            try {
+                long rows = csv ? writeCsv(out) : writeNdjson(out);
+                log.info("Catalog export finished: {} products", rows);
+            } catch (DataAccessException e) {
+                throw new IOException("Catalog export failed", e);
+            } finally {
+                release.run();
+            }
+        };
+    }
+    
+    private long writeNdjson(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+        JsonGenerator json = objectMapper.getFactory().createGenerator(writer);
+        json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        json.setRootValueSeparator(null);
+    
+        long count = forEachProduct(product -> {
+            json.writeStartObject();
+            json.writeNumberField("id", product.id);
+            json.writeStringField("sku", product.sku);
+            json.writeStringField("name", product.name);
+            json.writeStringField("description", product.description);
+            json.writeNumberField("price", product.price);
+            json.writeNumberField("discountPrice", product.discountPrice);
+            json.writeNumberField("stockQuantity", product.stockQuantity);
+            json.writeStringField("brand", product.brand);
+            json.writeObjectField("categoryId", product.categoryId);
+            json.writeStringField("category", product.categoryName);
+            json.writeStringField("imageUrl", product.imageUrl);
+            json.writeArrayFieldStart("images");
+            for (String image : product.images) {
+                json.writeString(image);
+            }
+            json.writeEndArray();
+            json.writeObjectFieldStart("specifications");
+            for (Map.Entry<String, String> spec : product.specifications.entrySet()) {
+                json.writeStringField(spec.getKey(), spec.getValue());
+            }
+            json.writeEndObject();
+            json.writeBooleanField("featured", product.featured);
+            json.writeBooleanField("active", product.active);
+            json.writeNumberField("averageRating", product.averageRating);
+            json.writeNumberField("totalReviews", product.totalReviews);
+            json.writeEndObject();
+            json.writeRaw('\n');
+        });
+        json.flush();
+        writer.flush();
+        return count;
+    }
+    
+    // Same column names and list encodings the CSV import accepts, so an export can be re-imported
+    private long writeCsv(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+        writer.write(String.join(",", CSV_COLUMNS));
+        writer.write('\n');
+    
+        long count = forEachProduct(product -> {
+            List<String> specs = new ArrayList<>(product.specifications.size());
+            product.specifications.forEach((key, value) -> specs.add(key + "=" + value));
+    
+            writer.write(Long.toString(product.id));
+            writeField(writer, product.sku);
+            writeField(writer, product.name);
+            writeField(writer, product.description);
+            writeField(writer, toString(product.price));
+            writeField(writer, toString(product.discountPrice));
+            writeField(writer, Integer.toString(product.stockQuantity));
+            writeField(writer, product.brand);
+            writeField(writer, toString(product.categoryId));
+            writeField(writer, product.categoryName);
+            writeField(writer, product.imageUrl);
+            writeField(writer, String.join("|", product.images));
+            writeField(writer, String.join("|", specs));
+            writeField(writer, Boolean.toString(product.featured));
+            writeField(writer, Boolean.toString(product.active));
+            writeField(writer, Double.toString(product.averageRating));
+            writeField(writer, Integer.toString(product.totalReviews));
+            writer.write('\n');
+        });
+        writer.flush();
+        return count;
+    }
+    
+    private long forEachProduct(ProductWriter writer) throws IOException {
+        long lastId = 0;
+        long count = 0;
+        List<ProductRow> page;
+        do {
+            long afterId = lastId;
+            // The transaction ends before the page is written, so a slow client never holds it open
+            page = transactionTemplate.execute(status -> readPage(afterId));
+            for (ProductRow product : page) {
+                writer.write(product);
+            }
+            if (!page.isEmpty()) {
+                lastId = page.get(page.size() - 1).id;
+            }
+            count += page.size();
+        } while (page.size() == batchSize);
+        return count;
+    }
+    
+    private List<ProductRow> readPage(long afterId) {
+        List<ProductRow> page = jdbcTemplate.query(PRODUCTS_SQL, (rs, rowNum) -> new ProductRow(rs), afterId, batchSize);
+        if (page.isEmpty()) {
+            return page;
+        }
+        Map<Long, ProductRow> byId = new HashMap<>();
+        for (ProductRow product : page) {
+            byId.put(product.id, product);
+        }
+        long fromId = page.get(0).id;
+        long toId = page.get(page.size() - 1).id;
+        jdbcTemplate.query(IMAGES_SQL, rs -> {
+            ProductRow product = byId.get(rs.getLong(1));
+            if (product != null) {
+                product.images.add(rs.getString(2));
+            }
+        }, fromId, toId);
+        jdbcTemplate.query(SPECIFICATIONS_SQL, rs -> {
+            ProductRow product = byId.get(rs.getLong(1));
+            if (product != null) {
+                product.specifications.put(rs.getString(2), rs.getString(3));
+            }
+        }, fromId, toId);
+        return page;
+    }
+    
+    private static String toString(Object value) {
+        return value != null ? value.toString() : null;
+    }
+    
+    private static void writeField(Writer writer, String value) throws IOException {
+        writer.write(',');
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+    
+    private static final class ProductRow {
+        private final long id;
+        private final String sku;
+        private final String name;
+        private final String description;
+        private final BigDecimal price;
+        private final BigDecimal discountPrice;
+        private final int stockQuantity;
+        private final String brand;
+        private final Long categoryId;
+        private final String categoryName;
+        private final String imageUrl;
+        private final boolean featured;
+        private final boolean active;
+        private final double averageRating;
+        private final int totalReviews;
+        private final List<String> images = new ArrayList<>();
+        private final Map<String, String> specifications = new LinkedHashMap<>();
+    
+        private ProductRow(ResultSet rs) throws SQLException {
+            this.id = rs.getLong("id");
+            this.sku = rs.getString("sku");
+            this.name = rs.getString("name");
+            this.description = rs.getString("description");
+            this.price = rs.getBigDecimal("price");
+            this.discountPrice = rs.getBigDecimal("discount_price");
+            this.stockQuantity = rs.getInt("stock_quantity");
+            this.brand = rs.getString("brand");
+            this.categoryId = rs.getObject("category_id", Long.class);
+            this.categoryName = rs.getString("category_name");
+            this.imageUrl = rs.getString("image_url");
+            this.featured = rs.getBoolean("featured");
+            this.active = rs.getBoolean("active");
+            this.averageRating = rs.getDouble("average_rating");
+            this.totalReviews = rs.getInt("total_reviews");
+        }
+    }
+    
+    @FunctionalInterface
+    private interface ProductWriter {
+        void write(ProductRow product) throws IOException;
+    }
+}
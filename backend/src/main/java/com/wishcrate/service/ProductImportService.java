@@ -0,0 +1,604 @@
+package com.wishcrate.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.dao.NonTransientDataAccessResourceException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wishcrate.dto.ImportErrorDTO;
+import com.wishcrate.dto.ImportResultDTO;
+import com.wishcrate.dto.ProductImportRow;
+import com.wishcrate.event.ProductChangedEvent;
+
+/**
+ * Bulk product import from CSV or NDJSON. The input is parsed record by record and written in
+ * JDBC batches, one transaction per batch, upserting on SKU. Rows that fail validation are
+ * reported back and do not stop the import.
+ */
+@Service
+public class ProductImportService {
+    
+    private static final Logger log = LoggerFactory.getLogger(ProductImportService.class);
+    
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private static final long PROGRESS_INTERVAL = 10_000;
+    
+    private static final String INSERT_PRODUCT =
+            "INSERT INTO products (sku, name, description, price, discount_price, stock_quantity, brand, "
+            + "category_id, image_url, featured, active, average_rating, total_reviews, created_at, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, 0, ?, ?)";
+    
+    private static final String UPDATE_PRODUCT =
+            "UPDATE products SET name = ?, description = ?, price = ?, discount_price = ?, stock_quantity = ?, "
+            + "brand = ?, category_id = ?, image_url = ?, featured = COALESCE(?, featured), "
+            + "active = COALESCE(?, active), updated_at = ? WHERE id = ?";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    
+    public ProductImportService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                ApplicationEventPublisher eventPublisher, ObjectMapper objectMapper,
+                                @Value("${app.import.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+    }
+    
+    public ImportResultDTO importProducts(InputStream input, boolean csv) {
+        ImportResultDTO result = new ImportResultDTO();
+        CategoryLookup categories = loadCategories();
+        Map<String, PendingRow> batch = new LinkedHashMap<>();
+    
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            RowReader rows = csv ? new CsvRowReader(reader) : new NdjsonRowReader(reader, objectMapper);
+            while (true) {
+                ProductImportRow row;
+                try {
+                    row = rows.next();
+                } catch (IllegalArgumentException e) {
+                    result.setRowsRead(result.getRowsRead() + 1);
+                    addError(result, result.getRowsRead(), null, e.getMessage());
+                    continue;
+                }
+                if (row == null) {
+                    break;
+                }
+                long rowNumber = result.getRowsRead() + 1;
+                result.setRowsRead(rowNumber);
+    
+                String error = validate(row);
+                Long categoryId = error == null ? categories.resolve(row) : null;
+                if (error == null && categoryId == null) {
+                    error = "Category not found";
+                }
+                if (error != null) {
+                    addError(result, rowNumber, row.getSku(), error);
+                    continue;
+                }
+    
+                String sku = row.getSku().trim();
+                // A repeated SKU has to see the earlier row's write, so it starts a new batch
+                if (batch.containsKey(sku) || batch.size() >= batchSize) {
+                    flush(batch, result);
+                }
+                batch.put(sku, new PendingRow(rowNumber, sku, row, categoryId));
+    
+                if (rowNumber % PROGRESS_INTERVAL == 0) {
+                    log.info("Product import progress: {} rows read, {} inserted, {} updated, {} failed",
+                            rowNumber, result.getInserted(), result.getUpdated(), result.getFailed());
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read import: " + e.getMessage());
+        } finally {
+            flush(batch, result);
+        }
+    
+        log.info("Product import finished: {} rows read, {} inserted, {} updated, {} failed",
+                result.getRowsRead(), result.getInserted(), result.getUpdated(), result.getFailed());
+        return result;
+    }
+    
+    private void flush(Map<String, PendingRow> batch, ImportResultDTO result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<PendingRow> rows = new ArrayList<>(batch.values());
+        batch.clear();
+        try {
+            write(rows, result);
+        } catch (DataAccessException e) {
+            if (rows.size() == 1 || !isRowError(e)) {
+                String message = (rows.size() == 1 ? "Rejected by database: " : "Batch rejected by database: ")
+                        + NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+                for (PendingRow row : rows) {
+                    addError(result, row.rowNumber, row.sku, message);
+                }
+                return;
+            }
+            // Some row broke the batch: write them one at a time so only the offending rows fail
+            for (PendingRow row : rows) {
+                try {
+                    write(List.of(row), result);
+                } catch (DataAccessException rowError) {
+                    addError(result, row.rowNumber, row.sku,
+                            "Rejected by database: " + NestedExceptionUtils.getMostSpecificCause(rowError).getMessage());
+                }
+            }
+        }
+    }
+    
+    private void write(List<PendingRow> rows, ImportResultDTO result) {
+        int[] counts = transactionTemplate.execute(status -> writeBatch(rows));
+        result.setInserted(result.getInserted() + counts[0]);
+        result.setUpdated(result.getUpdated() + counts[1]);
+    }
+    
+    // Data the database refused, as opposed to a lost connection or a timeout, which would
+    // only fail again row by row
+    private static boolean isRowError(DataAccessException e) {
+        return e instanceof NonTransientDataAccessException
+                && !(e instanceof NonTransientDataAccessResourceException);
+    }
+    
+    private int[] writeBatch(List<PendingRow> rows) {
+        Map<String, Long> existing = findIdsBySku(rows);
+        List<PendingRow> inserts = new ArrayList<>();
+        List<PendingRow> updates = new ArrayList<>();
+        for (PendingRow row : rows) {
+            row.id = existing.get(row.sku);
+            row.existing = row.id != null;
+            (row.existing ? updates : inserts).add(row);
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+    
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_PRODUCT, updates, updates.size(), (ps, pending) -> {
+                ProductImportRow row = pending.row;
+                ps.setString(1, row.getName());
+                ps.setString(2, row.getDescription());
+                ps.setBigDecimal(3, row.getPrice());
+                ps.setBigDecimal(4, row.getDiscountPrice());
+                ps.setInt(5, row.getStockQuantity());
+                ps.setString(6, row.getBrand());
+                ps.setLong(7, pending.categoryId);
+                ps.setString(8, row.getImageUrl());
+                setNullableBoolean(ps, 9, row.getFeatured());
+                setNullableBoolean(ps, 10, row.getActive());
+                ps.setTimestamp(11, now);
+                ps.setLong(12, pending.id);
+            });
+        }
+    
+        if (!inserts.isEmpty()) {
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(
+                    con -> con.prepareStatement(INSERT_PRODUCT, Statement.RETURN_GENERATED_KEYS),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            PendingRow pending = inserts.get(i);
+                            ProductImportRow row = pending.row;
+                            ps.setString(1, pending.sku);
+                            ps.setString(2, row.getName());
+                            ps.setString(3, row.getDescription());
+                            ps.setBigDecimal(4, row.getPrice());
+                            ps.setBigDecimal(5, row.getDiscountPrice());
+                            ps.setInt(6, row.getStockQuantity());
+                            ps.setString(7, row.getBrand());
+                            ps.setLong(8, pending.categoryId);
+                            ps.setString(9, row.getImageUrl());
+                            ps.setBoolean(10, Boolean.TRUE.equals(row.getFeatured()));
+                            ps.setBoolean(11, row.getActive() == null || row.getActive());
+                            ps.setTimestamp(12, now);
+                            ps.setTimestamp(13, now);
+                        }
+    
+                        @Override
+                        public int getBatchSize() {
+                            return inserts.size();
+                        }
+                    },
+                    keyHolder);
+            List<Map<String, Object>> keys = keyHolder.getKeyList();
+            for (int i = 0; i < inserts.size(); i++) {
+                inserts.get(i).id = ((Number) keys.get(i).values().iterator().next()).longValue();
+            }
+        }
+    
+        replaceImages(rows);
+        replaceSpecifications(rows);
+    
+        List<Long> ids = new ArrayList<>(rows.size());
+        for (PendingRow row : rows) {
+            ids.add(row.id);
+        }
+        eventPublisher.publishEvent(new ProductChangedEvent(ids));
+        return new int[] {inserts.size(), updates.size()};
+    }
+    
+    // Collections are only touched when the row carries them, so partial updates keep existing images
+    private void replaceImages(List<PendingRow> rows) {
+        List<Long> stale = new ArrayList<>();
+        List<Object[]> values = new ArrayList<>();
+        List<Object[]> primaries = new ArrayList<>();
+        for (PendingRow pending : rows) {
+            List<String> images = pending.row.getImages();
+            if (images == null) {
+                continue;
+            }
+            if (pending.existing) {
+                stale.add(pending.id);
+            }
+            for (String image : images) {
+                values.add(new Object[] {pending.id, image});
+            }
+            primaries.add(new Object[] {images.isEmpty() ? null : images.get(0), pending.id});
+        }
+        if (!stale.isEmpty()) {
+            namedJdbcTemplate.update("DELETE FROM product_images WHERE product_id IN (:ids)", Map.of("ids", stale));
+        }
+        if (!values.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO product_images (product_id, images) VALUES (?, ?)", values);
+        }
+        if (!primaries.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE products SET primary_image = ? WHERE id = ?", primaries);
+        }
+    }
+    
+    private void replaceSpecifications(List<PendingRow> rows) {
+        List<Long> stale = new ArrayList<>();
+        List<Object[]> values = new ArrayList<>();
+        for (PendingRow pending : rows) {
+            if (pending.row.getSpecifications() == null) {
+                continue;
+            }
+            if (pending.existing) {
+                stale.add(pending.id);
+            }
+            for (Map.Entry<String, String> spec : pending.row.getSpecifications().entrySet()) {
+                values.add(new Object[] {pending.id, spec.getKey(), spec.getValue()});
+            }
+        }
+        if (!stale.isEmpty()) {
+            namedJdbcTemplate.update("DELETE FROM product_specifications WHERE product_id IN (:ids)",
+                    Map.of("ids", stale));
+        }
+        if (!values.isEmpty()) {
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO product_specifications (product_id, spec_key, spec_value) VALUES (?, ?, ?)", values);
+        }
+    }
+    
+    private Map<String, Long> findIdsBySku(List<PendingRow> rows) {
+        List<String> skus = new ArrayList<>(rows.size());
+        for (PendingRow row : rows) {
+            skus.add(row.sku);
+        }
+        Map<String, Long> ids = new HashMap<>();
+        // SKU is not unique in the schema; when duplicates already exist the oldest product wins
+        namedJdbcTemplate.query("SELECT id, sku FROM products WHERE sku IN (:skus) ORDER BY id",
+                Map.of("skus", skus),
+                rs -> {
+                    ids.putIfAbsent(rs.getString("sku"), rs.getLong("id"));
+                });
+        return ids;
+    }
+    
+    private CategoryLookup loadCategories() {
+        CategoryLookup lookup = new CategoryLookup();
+        jdbcTemplate.query("SELECT id, name FROM categories", rs -> {
+            long id = rs.getLong("id");
+            lookup.ids.add(id);
+            lookup.byName.put(rs.getString("name").trim().toLowerCase(Locale.ROOT), id);
+        });
+        return lookup;
+    }
+    
+    private static String validate(ProductImportRow row) {
+        if (row.getSku() == null || row.getSku().isBlank()) {
+            return "SKU is required";
+        }
+        if (row.getName() == null || row.getName().isBlank()) {
+            return "Name is required";
+        }
+        if (row.getPrice() == null || row.getPrice().signum() < 0) {
+            return "Price is required and must not be negative";
+        }
+        if (row.getDiscountPrice() != null && row.getDiscountPrice().signum() < 0) {
+            return "Discount price must not be negative";
+        }
+        if (row.getStockQuantity() == null || row.getStockQuantity() < 0) {
+            return "Stock quantity is required and must not be negative";
+        }
+        return null;
+    }
+    
+    private static void addError(ImportResultDTO result, long rowNumber, String sku, String message) {
+        result.setFailed(result.getFailed() + 1);
+        if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+            result.getErrors().add(new ImportErrorDTO(rowNumber, sku, message));
+        } else {
+            result.setErrorsTruncated(true);
+        }
+    }
+    
+    private static void setNullableBoolean(PreparedStatement ps, int index, Boolean value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.BOOLEAN);
+        } else {
+            ps.setBoolean(index, value);
+        }
+    }
+    
+    private static final class PendingRow {
+        private final long rowNumber;
+        private final String sku;
+        private final ProductImportRow row;
+        private final Long categoryId;
+        private Long id;
+        private boolean existing;
+    
+        private PendingRow(long rowNumber, String sku, ProductImportRow row, Long categoryId) {
+            this.rowNumber = rowNumber;
+            this.sku = sku;
+            this.row = row;
+            this.categoryId = categoryId;
+        }
+    }
+    
+    private static final class CategoryLookup {
+        private final Map<String, Long> byName = new HashMap<>();
+        private final Set<Long> ids = new HashSet<>();
+    
+        private Long resolve(ProductImportRow row) {
+            if (row.getCategoryId() != null) {
+                return ids.contains(row.getCategoryId()) ? row.getCategoryId() : null;
+            }
+            if (row.getCategory() == null) {
+                return null;
+            }
+            return byName.get(row.getCategory().trim().toLowerCase(Locale.ROOT));
+        }
+    }
+    
+    /**
+     * Yields one import row per call, or null at the end of input. A record that cannot be
+     * converted is consumed before IllegalArgumentException is thrown, so reading can continue.
+     */
+    private interface RowReader {
+        ProductImportRow next() throws IOException;
+    }
+    
+    private static final class NdjsonRowReader implements RowReader {
+        private final BufferedReader reader;
+        private final ObjectMapper objectMapper;
+    
+        private NdjsonRowReader(BufferedReader reader, ObjectMapper objectMapper) {
+            this.reader = reader;
+            this.objectMapper = objectMapper;
+        }
+    
+        @Override
+        public ProductImportRow next() throws IOException {
+            String line;
+            do {
+                line = reader.readLine();
+                if (line == null) {
+                    return null;
+                }
+            } while (line.isBlank());
+            try {
+                return objectMapper.readValue(line, ProductImportRow.class);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Invalid JSON: " + e.getOriginalMessage());
+            }
+        }
+    }
+    
+    /**
+     * RFC 4180 style CSV with a header row. Images are separated by '|' and specifications are
+     * written as key=value pairs separated by '|'.
+     */
+    private static final class CsvRowReader implements RowReader {
+        private final BufferedReader reader;
+        private List<String> header;
+    
+        private CsvRowReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+    
+        @Override
+        public ProductImportRow next() throws IOException {
+            if (header == null) {
+                List<String> columns = readRecord();
+                if (columns == null) {
+                    return null;
+                }
+                header = new ArrayList<>(columns.size());
+                for (String column : columns) {
+                    header.add(column.trim().replace("_", "").replace(" ", "").toLowerCase(Locale.ROOT));
+                }
+            }
+            List<String> fields;
+            do {
+                fields = readRecord();
+                if (fields == null) {
+                    return null;
+                }
+            } while (fields.size() == 1 && fields.get(0).isBlank());
+    
+            ProductImportRow row = new ProductImportRow();
+            for (int i = 0; i < header.size() && i < fields.size(); i++) {
+                String value = fields.get(i).trim();
+                if (!value.isEmpty()) {
+                    apply(row, header.get(i), value);
+                }
+            }
+            return row;
+        }
+    
+        private static void apply(ProductImportRow row, String column, String value) {
+            switch (column) {
+                case "sku" -> row.setSku(value);
+                case "name" -> row.setName(value);
+                case "description" -> row.setDescription(value);
+                case "price" -> row.setPrice(decimal(column, value));
+                case "discountprice" -> row.setDiscountPrice(decimal(column, value));
+                case "stockquantity" -> row.setStockQuantity(integer(column, value));
+                case "brand" -> row.setBrand(value);
+                case "categoryid" -> row.setCategoryId(longValue(column, value));
+                case "category" -> row.setCategory(value);
+                case "imageurl" -> row.setImageUrl(value);
+                case "images" -> row.setImages(split(value));
+                case "specifications" -> row.setSpecifications(specifications(value));
+                case "featured" -> row.setFeatured(bool(column, value));
+                case "active" -> row.setActive(bool(column, value));
+                default -> {
+                    // Unknown columns are ignored, like unknown JSON properties
+                }
+            }
+        }
+    
+        private static BigDecimal decimal(String column, String value) {
+            try {
+                return new BigDecimal(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid " + column + ": " + value);
+            }
+        }
+    
+        private static int integer(String column, String value) {
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid " + column + ": " + value);
+            }
+        }
+    
+        private static long longValue(String column, String value) {
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid " + column + ": " + value);
+            }
+        }
+        
+        private static Boolean bool(String column, String value) {
+            return switch (value.toLowerCase(Locale.ROOT)) {
+                case "true", "1", "yes" -> true;
+                case "false", "0", "no" -> false;
+                default -> throw new IllegalArgumentException("Invalid " + column + ": " + value);
+            };
+        }
+    
+        private static List<String> split(String value) {
+            List<String> parts = new ArrayList<>();
+            for (String part : value.split("\\|")) {
+                if (!part.isBlank()) {
+                    parts.add(part.trim());
+                }
+            }
+            return parts;
+        }
+    
+        private static Map<String, String> specifications(String value) {
+            Map<String, String> specs = new LinkedHashMap<>();
+            for (String pair : split(value)) {
+                int eq = pair.indexOf('=');
+                if (eq <= 0) {
+                    throw new IllegalArgumentException("Invalid specification: " + pair);
+                }
+                specs.put(pair.substring(0, eq).trim(), pair.substring(eq + 1).trim());
+            }
+            return specs;
+        }
+    
+        private List<String> readRecord() throws IOException {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean any = false;
+            int c;
+            while ((c = reader.read()) != -1) {
+                any = true;
+                if (quoted) {
+                    if (c == '"') {
+                        reader.mark(1);
+                        int next = reader.read();
+                        if (next == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            if (next != -1) {
+                                reader.reset();
+                            }
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n') {
+                    fields.add(field.toString());
+                    return fields;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+            }
+            if (!any) {
+                return null;
+            }
+            if (quoted) {
+                throw new IllegalArgumentException("Unterminated quoted field");
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+}
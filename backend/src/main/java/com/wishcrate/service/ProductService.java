@@ -1,62 +1,301 @@
 package com.wishcrate.service;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.wishcrate.cache.CategoryHierarchy;
+import com.wishcrate.cache.FeaturedProductsSnapshot;
+import com.wishcrate.cache.ProductCache;
+import com.wishcrate.dto.CursorPage;
+import com.wishcrate.dto.ProductCursor;
 import com.wishcrate.dto.ProductDTO;
+import com.wishcrate.dto.ProductFields;
+import com.wishcrate.dto.ProductImageView;
+import com.wishcrate.dto.ProductListingDTO;
+import com.wishcrate.dto.ProductQueryResponse;
+import com.wishcrate.dto.ProductSearchResponse;
+import com.wishcrate.dto.ProductSpecificationView;
+import com.wishcrate.dto.SuggestionDTO;
+import com.wishcrate.event.ProductChangedEvent;
 import com.wishcrate.model.Category;
 import com.wishcrate.model.Product;
+import com.wishcrate.recommendation.CoPurchaseIndex;
+import com.wishcrate.recommendation.SimilarProductsIndex;
 import com.wishcrate.repository.CategoryRepository;
 import com.wishcrate.repository.ProductRepository;
+import com.wishcrate.search.FacetIndex;
+import com.wishcrate.search.FacetQuery;
+import com.wishcrate.search.FuzzyTermIndex;
+import com.wishcrate.search.ProductRankings;
+import com.wishcrate.search.ProductSearchIndex;
+import com.wishcrate.search.SuggestionIndex;
 
 @Service
 public class ProductService {
     
+    private static final int MAX_BATCH_SIZE = 100;
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+    
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
+    private final ProductCache productCache;
+    private final ProductSearchIndex productSearchIndex;
+    private final FeaturedProductsSnapshot featuredProductsSnapshot;
+    private final FacetIndex facetIndex;
+    private final SuggestionIndex suggestionIndex;
+    private final FuzzyTermIndex fuzzyTermIndex;
+    private final ProductRankings productRankings;
+    private final CategoryHierarchy categoryHierarchy;
+    private final CoPurchaseIndex coPurchaseIndex;
+    private final SimilarProductsIndex similarProductsIndex;
+    private final ApplicationEventPublisher eventPublisher;
     
-    public ProductService(ProductRepository productRepository, CategoryRepository categoryRepository) {
+    public ProductService(ProductRepository productRepository, CategoryRepository categoryRepository,
+                          ProductCache productCache, ProductSearchIndex productSearchIndex,
+                          FeaturedProductsSnapshot featuredProductsSnapshot, FacetIndex facetIndex,
+                          SuggestionIndex suggestionIndex, FuzzyTermIndex fuzzyTermIndex,
+                          ProductRankings productRankings,
+                          CategoryHierarchy categoryHierarchy, CoPurchaseIndex coPurchaseIndex,
+                          SimilarProductsIndex similarProductsIndex, ApplicationEventPublisher eventPublisher) {
         this.productRepository = productRepository;
         this.categoryRepository = categoryRepository;
+        this.productCache = productCache;
+        this.productSearchIndex = productSearchIndex;
+        this.featuredProductsSnapshot = featuredProductsSnapshot;
+        this.facetIndex = facetIndex;
+        this.suggestionIndex = suggestionIndex;
+        this.fuzzyTermIndex = fuzzyTermIndex;
+        this.productRankings = productRankings;
+        this.categoryHierarchy = categoryHierarchy;
+        this.coPurchaseIndex = coPurchaseIndex;
+        this.similarProductsIndex = similarProductsIndex;
+        this.eventPublisher = eventPublisher;
+    }
+    
+    public Page<ProductListingDTO> getAllProducts(Pageable pageable) {
+        return productRepository.findListingsByActiveTrue(pageable);
+    }
+    
+    public Page<ProductListingDTO> getProductsByCategory(Long categoryId, Pageable pageable) {
+        return productRepository.findListingsByCategoryIdIn(categoryHierarchy.descendantsOf(categoryId), pageable);
+    }
+    
+    public Page<ProductListingDTO> searchProducts(String keyword, Pageable pageable) {
+        // The LIKE query only serves requests that arrive before the index has finished loading
+        if (!productSearchIndex.isReady()) {
+            return productRepository.searchListings(keyword, pageable);
+        }
+        
+        ProductSearchIndex.SearchResult result = productSearchIndex.search(
+                keyword, (int) pageable.getOffset(), pageable.getPageSize());
+        return new PageImpl<>(getListingsInOrder(result.getProductIds()), pageable, result.getTotalHits());
+    }
+    
+    /**
+     * Typo-tolerant search: misspelled words are replaced with the closest words from product
+     * names and brands before ranking, and the corrected query is returned as a suggestion.
+     */
+    public ProductSearchResponse searchProductsFuzzy(String keyword, Pageable pageable) {
+        if (!productSearchIndex.isReady()) {
+            return new ProductSearchResponse(searchProducts(keyword, pageable), null);
+        }
+        // Words found anywhere in the catalog, descriptions included, are not typos
+        FuzzyTermIndex.Correction correction = fuzzyTermIndex.correct(keyword, productSearchIndex::matchesAll);
+        String query = correction.isChanged() ? correction.getQuery() : keyword;
+        return new ProductSearchResponse(searchProducts(query, pageable),
+                correction.isChanged() ? correction.getQuery() : null);
     }
     
-    public Page<ProductDTO> getAllProducts(Pageable pageable) {
-        return productRepository.findByActiveTrue(pageable)
-                .map(this::convertToDTO);
+    public Page<ProductListingDTO> getProductsByPriceRange(BigDecimal minPrice, BigDecimal maxPrice, Pageable pageable) {
+        return productRepository.findListingsByPriceRange(minPrice, maxPrice, pageable);
     }
     
-    public Page<ProductDTO> getProductsByCategory(Long categoryId, Pageable pageable) {
-        return productRepository.findByCategoryIdAndActiveTrue(categoryId, pageable)
-                .map(this::convertToDTO);
+    /**
+     * Combined category/brand/price/rating/stock filtering with facet counts for every dimension.
+     */
+    public ProductQueryResponse queryProducts(FacetQuery query, Pageable pageable) {
+        // The facet index already files products under every ancestor category
+        FacetIndex.FacetResult result = facetIndex.query(query, (int) pageable.getOffset(), pageable.getPageSize());
+        Page<ProductListingDTO> products = new PageImpl<>(
+                getListingsInOrder(result.getProductIds()), pageable, result.getTotalHits());
+        return new ProductQueryResponse(products, result.getFacets());
     }
     
-    public Page<ProductDTO> searchProducts(String keyword, Pageable pageable) {
-        return productRepository.searchProducts(keyword, pageable)
-                .map(this::convertToDTO);
+    /**
+     * Keyset-paginated listing. {@code categoryId} (which includes its subcategories) and the
+     * price bounds are optional filters.
+     */
+    public CursorPage<ProductListingDTO> getProductsAfter(ProductCursor cursor, Long categoryId,
+                                                          BigDecimal minPrice, BigDecimal maxPrice, int requestedSize) {
+        int size = Math.min(Math.max(requestedSize, 1), MAX_CURSOR_PAGE_SIZE);
+        List<ProductListingDTO> rows = productRepository.findActiveAfter(cursor,
+                categoryId != null ? categoryHierarchy.descendantsOf(categoryId) : null, minPrice, maxPrice, size + 1);
+        boolean hasNext = rows.size() > size;
+        List<ProductListingDTO> content = hasNext ? rows.subList(0, size) : rows;
+        
+        String nextCursor = null;
+        if (hasNext) {
+            ProductListingDTO last = content.get(content.size() - 1);
+            nextCursor = cursor.after(sortValue(last, cursor.getSortBy()), last.getId()).encode();
+        }
+        return new CursorPage<>(content, nextCursor, content.size());
+    }
+    
+    public List<SuggestionDTO> suggest(String prefix, int limit) {
+        return suggestionIndex.suggest(prefix, Math.min(Math.max(limit, 1), 10));
+    }
+    
+    public List<ProductListingDTO> getTopRated(Long categoryId, int limit) {
+        return getListingsInOrder(productRankings.topRated(categoryId, clampRankingLimit(limit)));
     }
     
-    public Page<ProductDTO> getProductsByPriceRange(BigDecimal minPrice, BigDecimal maxPrice, Pageable pageable) {
-        return productRepository.findByPriceRange(minPrice, maxPrice, pageable)
-                .map(this::convertToDTO);
+    public List<ProductListingDTO> getBestSellers(Long categoryId, int limit) {
+        return getListingsInOrder(productRankings.bestSellers(categoryId, clampRankingLimit(limit)));
     }
     
-    public List<ProductDTO> getFeaturedProducts() {
-        return productRepository.findByFeaturedTrueAndActiveTrue()
+    /**
+     * Products most often ordered together with the given one, most frequent first.
+     */
+    public List<ProductListingDTO> getFrequentlyBoughtTogether(Long productId, int limit) {
+        int clamped = Math.min(Math.max(limit, 1), coPurchaseIndex.getTopK());
+        return getListingsInOrder(coPurchaseIndex.frequentlyBoughtWith(productId, clamped));
+    }
+    
+    /**
+     * Products most alike in name, brand, category and specifications, most similar first.
+     */
+    public List<ProductListingDTO> getSimilarProducts(Long productId, int limit) {
+        return getListingsInOrder(similarProductsIndex.similarTo(productId, Math.min(Math.max(limit, 1), 20)));
+    }
+    
+    /**
+     * Loads listing rows for the given ids with one query, preserving the order of {@code ids}.
+     */
+    public List<ProductListingDTO> getListingsInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, ProductListingDTO> listings = productRepository.findListingsByIdIn(ids)
                 .stream()
-                .map(this::convertToDTO)
+                .collect(Collectors.toMap(ProductListingDTO::getId, Function.identity()));
+        return ids.stream()
+                .map(listings::get)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
     
-    public ProductDTO getProductById(Long id) {
+    /**
+     * Featured products as ready-to-send JSON (a list of {@link ProductListingDTO}).
+     */
+    public byte[] getFeaturedProductsJson() {
+        return featuredProductsSnapshot.getJson();
+    }
+    
+    /**
+     * A product's details. A full read is cached; a read limited to some {@code fields} queries
+     * only those and is served from the cache only when the full product is already there.
+     */
+    public ProductDTO getProductById(Long id, ProductFields fields) {
+        ProductDTO cached = productCache.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        if (!fields.isAll()) {
+            ProductDTO partial = loadDetails(List.of(id), fields).get(id);
+            if (partial == null) {
+                throw new RuntimeException("Product not found");
+            }
+            return partial;
+        }
+        
+        long generation = productCache.generation();
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
-        return convertToDTO(product);
+        ProductDTO productDTO = convertToDTO(product);
+        productCache.put(id, productDTO, generation);
+        return productDTO;
+    }
+    
+    /**
+     * Details for several products in the order of {@code ids}, skipping unknown ids. Cached
+     * products come from the cache; the rest are loaded with at most three IN queries however
+     * many there are: the requested columns, then images and specifications if requested.
+     */
+    @Transactional(readOnly = true)
+    public List<ProductDTO> getProductsByIds(List<Long> ids, ProductFields fields) {
+        Set<Long> requested = new LinkedHashSet<>(ids);
+        if (requested.size() > MAX_BATCH_SIZE) {
+            throw new RuntimeException("At most " + MAX_BATCH_SIZE + " products can be requested at once");
+        }
+        
+        Map<Long, ProductDTO> found = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long id : requested) {
+            ProductDTO cached = productCache.get(id);
+            if (cached != null) {
+                found.put(id, cached);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            found.putAll(loadDetails(missing, fields));
+        }
+        
+        return requested.stream()
+                .map(found::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+    
+    // Only complete products are cached, so a later full read never gets a partial one
+    private Map<Long, ProductDTO> loadDetails(List<Long> ids, ProductFields fields) {
+        long generation = productCache.generation();
+        Map<Long, List<String>> images = new HashMap<>();
+        if (fields.includes("images")) {
+            for (ProductImageView image : productRepository.findImagesByProductIdIn(ids)) {
+                images.computeIfAbsent(image.getProductId(), id -> new ArrayList<>()).add(image.getImage());
+            }
+        }
+        Map<Long, Map<String, String>> specifications = new HashMap<>();
+        if (fields.includes("specifications")) {
+            for (ProductSpecificationView spec : productRepository.findSpecificationsByProductIdIn(ids)) {
+                specifications.computeIfAbsent(spec.getProductId(), id -> new HashMap<>())
+                        .put(spec.getSpecKey(), spec.getSpecValue());
+            }
+        }
+        
+        Map<Long, ProductDTO> loaded = new HashMap<>();
+        for (ProductDTO productDTO : productRepository.findDetailsByIdIn(ids, fields)) {
+            Long id = productDTO.getId();
+            if (fields.includes("images")) {
+                productDTO.setImages(Collections.unmodifiableList(images.getOrDefault(id, new ArrayList<>())));
+            }
+            if (fields.includes("specifications")) {
+                productDTO.setSpecifications(Collections.unmodifiableMap(specifications.getOrDefault(id, new HashMap<>())));
+            }
+            if (fields.isAll()) {
+                productCache.put(id, productDTO, generation);
+            }
+            loaded.put(id, productDTO);
+        }
+        return loaded;
     }
     
     @Transactional
@@ -81,6 +320,7 @@ public class ProductService {
                 .build();
         
         Product savedProduct = productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.of(savedProduct.getId()));
         return convertToDTO(savedProduct);
     }
     
@@ -108,6 +348,7 @@ public class ProductService {
         product.setFeatured(productDTO.isFeatured());
         
         Product updatedProduct = productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.of(id));
         return convertToDTO(updatedProduct);
     }
     
@@ -117,6 +358,20 @@ public class ProductService {
                 .orElseThrow(() -> new RuntimeException("Product not found"));
         product.setActive(false);
         productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.of(id));
+    }
+    
+    private Object sortValue(ProductListingDTO product, String sortBy) {
+        switch (sortBy) {
+            case "price":
+                return product.getPrice();
+            case "averageRating":
+                return product.getAverageRating();
+            case "name":
+                return product.getName();
+            default:
+                return product.getId();
+        }
     }
     
     private ProductDTO convertToDTO(Product product) {
@@ -128,16 +383,22 @@ public class ProductService {
                 .discountPrice(product.getDiscountPrice())
                 .stockQuantity(product.getStockQuantity())
                 .brand(product.getBrand())
-                .images(product.getImages())
+                .images(product.getImages() != null
+                        ? Collections.unmodifiableList(new ArrayList<>(product.getImages())) : null)
                 .imageUrl(product.getImageUrl())
                 .categoryId(product.getCategory() != null ? product.getCategory().getId() : null)
                 .categoryName(product.getCategory() != null ? product.getCategory().getName() : null)
                 .averageRating(product.getAverageRating())
                 .totalReviews(product.getTotalReviews())
                 .sku(product.getSku())
-                .specifications(product.getSpecifications())
+                .specifications(product.getSpecifications() != null
+                        ? Collections.unmodifiableMap(new HashMap<>(product.getSpecifications())) : null)
                 .featured(product.isFeatured())
                 .active(product.isActive())
                 .build();
     }
+    
+    private int clampRankingLimit(int limit) {
+        return Math.min(Math.max(limit, 1), productRankings.getSize());
+    }
 }
@@ -0,0 +1,37 @@
+package com.wishcrate.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Locale;
+
+/**
+ * Statements for single forward-only passes over tables too large to buffer in memory.
+ */
+public final class JdbcStreaming {
+    
+    private static final int FETCH_SIZE = 1000;
+    
+    private JdbcStreaming() {
+    }
+    
+    /**
+     * Prepares a forward-only, read-only statement whose results are fetched as they are read.
+     * Connector/J only streams row by row when the fetch size is Integer.MIN_VALUE, and then
+     * allows no other statement on the connection until the result set is closed; other drivers
+     * get an ordinary fetch size.
+     */
+    public static PreparedStatement prepareForwardOnly(Connection connection, String sql) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(
+                sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        try {
+            boolean mysql = connection.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT).contains("mysql");
+            statement.setFetchSize(mysql ? Integer.MIN_VALUE : FETCH_SIZE);
+            return statement;
+        } catch (SQLException | RuntimeException e) {
+            statement.close();
+            throw e;
+        }
+    }
+}
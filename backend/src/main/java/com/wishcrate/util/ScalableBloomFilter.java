@@ -0,0 +1,72 @@
+package com.wishcrate.util;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A Bloom filter that grows instead of degrading: when the newest stage has taken its expected
+ * number of values a larger stage is added, each with a tighter false-positive rate so the
+ * compound rate stays below the configured one (Almeida et al., "Scalable Bloom Filters").
+ * A lookup checks every stage, and there are only a handful even after many doublings.
+ */
+public class ScalableBloomFilter {
+    
+    private static final int GROWTH = 2;
+    private static final double TIGHTENING = 0.5;
+    
+    private final List<BloomFilter> stages = new CopyOnWriteArrayList<>();
+    private volatile BloomFilter current;
+    private volatile double nextFalsePositiveRate;
+    
+    public ScalableBloomFilter(long initialCapacity, double falsePositiveRate) {
+        // Stage rates p(1 - r), p(1 - r)r, ... sum to at most p
+        this.nextFalsePositiveRate = falsePositiveRate * (1 - TIGHTENING);
+        this.current = addStage(initialCapacity);
+    }
+    
+    /**
+     * Adds a value; returns false if the filter may already have contained it.
+     */
+    public boolean add(String value) {
+        if (mightContain(value)) {
+            return false;
+        }
+        BloomFilter stage = current;
+        if (stage.getInsertions() >= stage.getExpectedInsertions()) {
+            stage = grow(stage);
+        }
+        return stage.add(value);
+    }
+    
+    public boolean mightContain(String value) {
+        for (BloomFilter stage : stages) {
+            if (stage.mightContain(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    public int getStageCount() {
+        return stages.size();
+    }
+    
+    public long getBitCount() {
+        return stages.stream().mapToLong(BloomFilter::getBitCount).sum();
+    }
+    
+    private synchronized BloomFilter grow(BloomFilter full) {
+        if (current == full) {
+            current = addStage(full.getExpectedInsertions() * GROWTH);
+        }
+        return current;
+    }
+    
+    // Caller is the constructor or holds the monitor
+    private BloomFilter addStage(long capacity) {
+        BloomFilter stage = new BloomFilter(capacity, nextFalsePositiveRate);
+        nextFalsePositiveRate *= TIGHTENING;
+        stages.add(stage);
+        return stage;
+    }
+}
@@ -0,0 +1,56 @@
+package com.wishcrate.dto;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.junit.jupiter.api.Test;
+
+class ProductCursorTest {
+    
+    @Test
+    void roundTripsEachSortKey() {
+        assertRoundTrip(new ProductCursor("id", true, 42L, 42L));
+        assertRoundTrip(new ProductCursor("price", false, new BigDecimal("19.90"), 7L));
+        assertRoundTrip(new ProductCursor("averageRating", true, 4.5, 3L));
+        assertRoundTrip(new ProductCursor("name", false, "Trail Runner", 12L));
+    }
+    
+    @Test
+    void keepsNamesContainingTheSeparator() {
+        ProductCursor decoded = ProductCursor.decode(new ProductCursor("name", true, "A|B|C", 5L).encode());
+        assertEquals("A|B|C", decoded.getLastValue());
+        assertEquals(5L, decoded.getLastId());
+    }
+    
+    @Test
+    void encodesAsUrlSafeToken() {
+        String token = new ProductCursor("name", true, "???>>>", 1L).encode();
+        assertFalse(token.contains("+") || token.contains("/") || token.contains("="), token);
+    }
+    
+    @Test
+    void rejectsMalformedTokens() {
+        assertThrows(RuntimeException.class, () -> ProductCursor.decode("not a cursor"));
+        assertThrows(RuntimeException.class, () -> ProductCursor.decode(""));
+        String unknownKey = Base64.getUrlEncoder().encodeToString("stock|A|1|5".getBytes(StandardCharsets.UTF_8));
+        assertThrows(RuntimeException.class, () -> ProductCursor.decode(unknownKey));
+    }
+    
+    @Test
+    void rejectsUnsupportedSortKey() {
+        assertThrows(RuntimeException.class, () -> ProductCursor.start("stock", true));
+    }
+    
+    private static void assertRoundTrip(ProductCursor cursor) {
+        ProductCursor decoded = ProductCursor.decode(cursor.encode());
+        assertEquals(cursor.getSortBy(), decoded.getSortBy());
+        assertEquals(cursor.isAscending(), decoded.isAscending());
+        assertEquals(cursor.getLastValue(), decoded.getLastValue());
+        assertEquals(cursor.getLastId(), decoded.getLastId());
+    }
+}
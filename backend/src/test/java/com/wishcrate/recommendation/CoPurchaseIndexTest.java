@@ -0,0 +1,69 @@
+package com.wishcrate.recommendation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.wishcrate.event.OrderPlacedEvent;
+import com.wishcrate.search.TestProduct;
+
+class CoPurchaseIndexTest {
+    
+    private CoPurchaseIndex index;
+    private long orderId;
+    
+    @BeforeEach
+    void setUp() {
+        index = new CoPurchaseIndex(null, 3, 8, 50);
+        for (long id = 1; id <= 30; id++) {
+            index.index(new TestProduct(id, "Product " + id, "Brand", 1L, "Category"));
+        }
+    }
+    
+    @Test
+    void ranksByCount() {
+        order(1, 2);
+        order(1, 2);
+        order(1, 3);
+        order(1, 3);
+        order(1, 3);
+        order(1, 4);
+        assertEquals(List.of(3L, 2L, 4L), index.frequentlyBoughtWith(1L, 10));
+        assertEquals(List.of(1L), index.frequentlyBoughtWith(2L, 10));
+    }
+    
+    @Test
+    void pruningLongTailKeepsTopList() {
+        order(1, 2);
+        order(1, 2);
+        // Twenty pairs seen once each push the row past its cap of eight several times
+        for (long other = 3; other <= 22; other++) {
+            order(1, other);
+        }
+        List<Long> top = index.frequentlyBoughtWith(1L, 10);
+        assertEquals(3, top.size());
+        assertEquals(2L, top.get(0));
+    }
+    
+    @Test
+    void skipsInactiveProducts() {
+        order(1, 2);
+        order(1, 2);
+        order(1, 3);
+        index.remove(2L);
+        assertEquals(List.of(3L), index.frequentlyBoughtWith(1L, 10));
+    }
+    
+    private void order(long... productIds) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (long id : productIds) {
+            quantities.put(id, 1);
+        }
+        index.onOrderPlaced(new OrderPlacedEvent(++orderId, 1L, quantities));
+    }
+}
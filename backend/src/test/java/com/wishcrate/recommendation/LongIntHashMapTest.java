@@ -0,0 +1,71 @@
+package com.wishcrate.recommendation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class LongIntHashMapTest {
+    
+    @Test
+    void addToInsertsAndAccumulates() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        assertEquals(1, map.addTo(7, 1));
+        assertEquals(3, map.addTo(7, 2));
+        assertEquals(5, map.addTo(8, 5));
+        assertEquals(2, map.size());
+    }
+    
+    @Test
+    void growsPastInitialCapacity() {
+        LongIntHashMap map = new LongIntHashMap(2);
+        for (long key = 1; key <= 10_000; key++) {
+            map.addTo(key, (int) key);
+        }
+        assertEquals(10_000, map.size());
+        for (long key = 1; key <= 10_000; key++) {
+            assertEquals((int) key + 1, map.addTo(key, 1));
+        }
+    }
+    
+    @Test
+    void rejectsZeroKey() {
+        assertThrows(IllegalArgumentException.class, () -> new LongIntHashMap(4).addTo(0, 1));
+    }
+    
+    @Test
+    void removeLowestRemovesExactlyTheRequestedCount() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        for (long key = 1; key <= 10; key++) {
+            map.addTo(key, 1);
+        }
+        assertEquals(4, map.removeLowest(4, key -> false));
+        assertEquals(6, map.size());
+    }
+    
+    @Test
+    void removeLowestPrefersLowValuesAndSkipsRetainedKeys() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        for (long key = 1; key <= 10; key++) {
+            map.addTo(key, (int) key);
+        }
+        // Keys 1 and 2 have the lowest values but are retained
+        assertEquals(3, map.removeLowest(3, key -> key <= 2));
+        assertEquals(7, map.size());
+        assertEquals(2, map.addTo(1, 1));
+        assertEquals(3, map.addTo(2, 1));
+        // 3, 4 and 5 were removed and start again from zero
+        assertEquals(1, map.addTo(3, 1));
+        assertEquals(1, map.addTo(5, 1));
+        assertEquals(7, map.addTo(6, 1));
+    }
+    
+    @Test
+    void removeLowestStopsWhenOnlyRetainedKeysAreLeft() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        map.addTo(1, 1);
+        map.addTo(2, 1);
+        assertEquals(1, map.removeLowest(5, key -> key == 1));
+        assertEquals(1, map.size());
+    }
+}
@@ -0,0 +1,86 @@
+package com.wishcrate.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.wishcrate.cache.CategoryHierarchy;
+import com.wishcrate.dto.CategoryNodeView;
+import com.wishcrate.dto.FacetCountDTO;
+import com.wishcrate.event.CategoryChangedEvent;
+import com.wishcrate.repository.CategoryRepository;
+
+class FacetIndexTest {
+    
+    private CategoryRepository categoryRepository;
+    private CategoryHierarchy hierarchy;
+    private FacetIndex index;
+    
+    @BeforeEach
+    void setUp() {
+        categoryRepository = mock(CategoryRepository.class);
+        when(categoryRepository.findAllNodes()).thenReturn(List.of(
+                node(1L, "Electronics", null), node(2L, "Phones", 1L), node(3L, "Cameras", 1L), node(4L, "Sports", null)));
+        hierarchy = new CategoryHierarchy(categoryRepository);
+        hierarchy.afterSingletonsInstantiated();
+        index = new FacetIndex(hierarchy);
+        
+        index.index(new TestProduct(1, "Galaxy", "Samsung", 2L, "Phones"));
+        index.index(new TestProduct(2, "iPhone", "Apple", 2L, "Phones"));
+        index.index(new TestProduct(3, "Z6", "Nikon", 3L, "Cameras"));
+        index.index(new TestProduct(4, "Ball", "Adidas", 4L, "Sports"));
+    }
+    
+    @Test
+    void categoryCountsCoverSubcategories() {
+        FacetIndex.FacetResult result = index.query(query(Set.of()), 0, 10);
+        
+        assertEquals(Map.of("Electronics", 3L, "Phones", 2L, "Cameras", 1L, "Sports", 1L),
+                counts(result.getFacets().get(FacetIndex.CATEGORY)));
+    }
+    
+    @Test
+    void parentFilterMatchesItsCount() {
+        FacetIndex.FacetResult result = index.query(query(Set.of(1L)), 0, 10);
+        
+        assertEquals(3, result.getTotalHits());
+        assertEquals(List.of(3L, 2L, 1L), result.getProductIds());
+    }
+    
+    @Test
+    void movedCategoryIsRecountedWhenItsProductsAreReindexed() {
+        when(categoryRepository.findAllNodes()).thenReturn(List.of(
+                node(1L, "Electronics", null), node(2L, "Phones", 1L), node(3L, "Cameras", 4L), node(4L, "Outdoor", null)));
+        hierarchy.onCategoryChanged(new CategoryChangedEvent(3L));
+        index.index(new TestProduct(3, "Z6", "Nikon", 3L, "Cameras"));
+        
+        FacetIndex.FacetResult result = index.query(query(Set.of()), 0, 10);
+        assertEquals(Map.of("Electronics", 2L, "Phones", 2L, "Cameras", 1L, "Outdoor", 2L),
+                counts(result.getFacets().get(FacetIndex.CATEGORY)));
+    }
+    
+    private static FacetQuery query(Set<Long> categoryIds) {
+        return new FacetQuery(categoryIds, null, null, null, false, null);
+    }
+    
+    private static Map<String, Long> counts(List<FacetCountDTO> facet) {
+        return facet.stream().collect(Collectors.toMap(FacetCountDTO::getLabel, FacetCountDTO::getCount));
+    }
+    
+    private static CategoryNodeView node(Long id, String name, Long parentId) {
+        return new CategoryNodeView() {
+            @Override public Long getId() { return id; }
+            @Override public String getName() { return name; }
+            @Override public String getImageUrl() { return null; }
+            @Override public Long getParentId() { return parentId; }
+        };
+    }
+}
@@ -0,0 +1,62 @@
+package com.wishcrate.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class FuzzyTermIndexTest {
+    
+    private FuzzyTermIndex index;
+    
+    @BeforeEach
+    void setUp() {
+        index = new FuzzyTermIndex();
+        index.index(new TestProduct(1, "Apple iPhone 15", "Apple", 2L, "Phones"));
+        index.index(new TestProduct(2, "Nikon Z6 camera", "Nikon", 1L, "Electronics"));
+        index.index(new TestProduct(3, "Samsung Galaxy S24", "Samsung", 2L, "Phones"));
+        index.onLoaded();
+    }
+    
+    @Test
+    void distanceCountsAdjacentTranspositionAsOneEdit() {
+        assertEquals(1, FuzzyTermIndex.distance("aplpe", "apple", 2));
+        assertEquals(1, FuzzyTermIndex.distance("nkion", "nikon", 2));
+        assertEquals(0, FuzzyTermIndex.distance("apple", "apple", 2));
+        assertEquals(2, FuzzyTermIndex.distance("smasnug", "samsung", 2));
+    }
+    
+    @Test
+    void distanceStopsAtLimit() {
+        assertEquals(2, FuzzyTermIndex.distance("apple", "nikon", 1));
+        assertEquals(2, FuzzyTermIndex.distance("a", "abcdef", 1));
+    }
+    
+    @Test
+    void correctsTranspositions() {
+        FuzzyTermIndex.Correction correction = index.correct("aplpe", word -> false);
+        assertTrue(correction.isChanged());
+        assertEquals("apple", correction.getQuery());
+        assertEquals("nikon", index.correct("nkion", word -> false).getQuery());
+    }
+    
+    @Test
+    void correctsSubstitutionsAndDeletions() {
+        assertEquals("samsung galaxy", index.correct("samsong galxy", word -> false).getQuery());
+    }
+    
+    @Test
+    void keepsKnownAndUnmatchedWords() {
+        assertFalse(index.correct("apple", word -> false).isChanged());
+        assertFalse(index.correct("aplpe", word -> true).isChanged());
+        assertFalse(index.correct("zzzzzz", word -> false).isChanged());
+    }
+    
+    @Test
+    void forgetsWordsOfRemovedProducts() {
+        index.remove(2L);
+        assertFalse(index.correct("nkion", word -> false).isChanged());
+    }
+}
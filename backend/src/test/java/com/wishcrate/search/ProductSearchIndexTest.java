@@ -0,0 +1,63 @@
+package com.wishcrate.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ProductSearchIndexTest {
+    
+    private ProductSearchIndex index;
+    
+    @BeforeEach
+    void setUp() {
+        index = new ProductSearchIndex();
+    }
+    
+    @Test
+    void ranksNameMatchesAboveCategoryMatches() {
+        index.index(new TestProduct(1, "Wireless headphones", "Sony", 1L, "Audio"));
+        index.index(new TestProduct(2, "Cable", "Generic", 1L, "Headphones accessories"));
+        index.index(new TestProduct(3, "Desk lamp", "Ikea", 2L, "Home"));
+        
+        ProductSearchIndex.SearchResult result = index.search("headphones", 0, 10);
+        assertEquals(List.of(1L, 2L), result.getProductIds());
+        assertEquals(2, result.getTotalHits());
+    }
+    
+    @Test
+    void removedAndReindexedProductsStopMatchingOldTerms() {
+        index.index(new TestProduct(1, "Red kettle", "Acme", null, null));
+        index.index(new TestProduct(2, "Red mug", "Acme", null, null));
+        
+        index.index(new TestProduct(1, "Blue kettle", "Acme", null, null));
+        index.remove(2L);
+        
+        assertEquals(0, index.search("red", 0, 10).getTotalHits());
+        assertFalse(index.matchesAll("red"));
+        assertEquals(List.of(1L), index.search("blue kettle", 0, 10).getProductIds());
+    }
+    
+    @Test
+    void manyRemovalsKeepCountsAndPagingExact() {
+        for (int i = 1; i <= 500; i++) {
+            index.index(new TestProduct(i, "Notebook " + i, "Paper Co", null, null));
+        }
+        for (int i = 1; i <= 500; i++) {
+            if (i % 5 != 0) {
+                index.remove((long) i);
+            }
+        }
+        
+        ProductSearchIndex.SearchResult result = index.search("notebook", 0, 3);
+        assertEquals(100, result.getTotalHits());
+        // Equal scores fall back to newest first
+        assertEquals(List.of(500L, 495L, 490L), result.getProductIds());
+        assertEquals(List.of(10L, 5L), index.search("notebook", 98, 10).getProductIds());
+        assertTrue(index.matchesAll("paper notebook"));
+    }
+}
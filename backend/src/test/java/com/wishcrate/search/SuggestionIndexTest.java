@@ -0,0 +1,113 @@
+package com.wishcrate.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.wishcrate.dto.SuggestionDTO;
+
+class SuggestionIndexTest {
+    
+    private SuggestionIndex index;
+    
+    @BeforeEach
+    void setUp() {
+        index = new SuggestionIndex();
+    }
+    
+    @Test
+    void ranksByPopularity() {
+        index.index(new TestProduct(1, "Phone case", null, null, null, 5));
+        index.index(new TestProduct(2, "Phone charger", null, null, null, 50));
+        index.index(new TestProduct(3, "Photo frame", null, null, null, 20));
+        
+        assertEquals(List.of("Phone charger", "Photo frame", "Phone case"), texts("pho", 10));
+        assertEquals(List.of("Phone charger", "Phone case"), texts("phone", 10));
+    }
+    
+    @Test
+    void removalRefillsFromOtherBranches() {
+        for (int i = 1; i <= 15; i++) {
+            index.index(new TestProduct(i, (i % 2 == 0 ? "Lamp " : "Laptop ") + i, null, null, null, i * 10));
+        }
+        index.remove(15L);
+        index.remove(14L);
+        
+        List<String> top = texts("la", 10);
+        assertEquals(10, top.size());
+        assertEquals("Laptop 13", top.get(0));
+        assertEquals("Lamp 4", top.get(9));
+    }
+    
+    @Test
+    void brandLosingProductsIsDemoted() {
+        index.index(new TestProduct(1, "Widget one", "Acme", null, null, 100));
+        index.index(new TestProduct(2, "Widget two", "Acme", null, null, 100));
+        index.index(new TestProduct(3, "Accessory", null, null, null, 60));
+        assertEquals(List.of("Acme", "Accessory"), texts("ac", 10));
+        
+        index.remove(1L);
+        index.index(new TestProduct(2, "Widget two", "Acme", null, null, 1));
+        
+        assertEquals(List.of("Accessory", "Acme"), texts("ac", 10));
+    }
+    
+    @Test
+    void matchesBruteForceAfterRandomUpdates() {
+        Random random = new Random(42);
+        String[] brands = {"Acme", "Apex", "Alpha", "Atlas"};
+        int[] reviews = new int[200];
+        int[] brandOf = new int[200];
+        boolean[] live = new boolean[200];
+        for (int step = 0; step < 2000; step++) {
+            int id = random.nextInt(200);
+            if (random.nextInt(4) == 0) {
+                index.remove((long) id);
+                live[id] = false;
+            } else {
+                reviews[id] = random.nextInt(1_000_000);
+                brandOf[id] = random.nextInt(brands.length);
+                live[id] = true;
+                index.index(new TestProduct(id, "Article " + id, brands[brandOf[id]], null, null, reviews[id]));
+            }
+        }
+        
+        double[] brandWeight = new double[brands.length];
+        for (int id = 0; id < 200; id++) {
+            if (live[id]) {
+                brandWeight[brandOf[id]] += 0.01 + Math.log1p(reviews[id]);
+            }
+        }
+        int best = 0;
+        for (int b = 1; b < brands.length; b++) {
+            if (brandWeight[b] > brandWeight[best]) {
+                best = b;
+            }
+        }
+        assertEquals(brands[best], texts("a", 1).get(0));
+        
+        List<Integer> expected = new ArrayList<>();
+        for (int id = 0; id < 200; id++) {
+            if (live[id]) {
+                expected.add(id);
+            }
+        }
+        expected.sort((x, y) -> Integer.compare(reviews[y], reviews[x]));
+        List<String> products = index.suggest("article", 10).stream()
+                .map(SuggestionDTO::getText)
+                .collect(Collectors.toList());
+        assertEquals(expected.subList(0, 10).stream().map(id -> "Article " + id).collect(Collectors.toList()), products);
+    }
+    
+    private List<String> texts(String prefix, int limit) {
+        return index.suggest(prefix, limit).stream()
+                .map(SuggestionDTO::getText)
+                .collect(Collectors.toList());
+    }
+}
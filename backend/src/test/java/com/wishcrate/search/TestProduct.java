@@ -0,0 +1,45 @@
+package com.wishcrate.search;
+
+import java.math.BigDecimal;
+
+import com.wishcrate.dto.ProductIndexView;
+
+/**
+ * Minimal {@link ProductIndexView} for feeding catalog indexes in tests.
+ */
+public class TestProduct implements ProductIndexView {
+    
+    private final Long id;
+    private final String name;
+    private final String brand;
+    private final Long categoryId;
+    private final String categoryName;
+    private final int totalReviews;
+    
+    public TestProduct(long id, String name, String brand, Long categoryId, String categoryName) {
+        this(id, name, brand, categoryId, categoryName, 0);
+    }
+    
+    public TestProduct(long id, String name, String brand, Long categoryId, String categoryName, int totalReviews) {
+        this.id = id;
+        this.name = name;
+        this.brand = brand;
+        this.categoryId = categoryId;
+        this.categoryName = categoryName;
+        this.totalReviews = totalReviews;
+    }
+    
+    @Override public Long getId() { return id; }
+    @Override public String getName() { return name; }
+    @Override public String getBrand() { return brand; }
+    @Override public String getDescription() { return ""; }
+    @Override public Long getCategoryId() { return categoryId; }
+    @Override public String getCategoryName() { return categoryName; }
+    @Override public BigDecimal getPrice() { return BigDecimal.TEN; }
+    @Override public BigDecimal getDiscountPrice() { return null; }
+    @Override public Integer getStockQuantity() { return 1; }
+    @Override public Double getAverageRating() { return 0.0; }
+    @Override public Integer getTotalReviews() { return totalReviews; }
+    @Override public boolean isFeatured() { return false; }
+    @Override public boolean isActive() { return true; }
+}
@@ -0,0 +1,44 @@
+package com.wishcrate.security;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class TokenBucketLimiterTest {
+    
+    @Test
+    void allowsABurstUpToCapacityThenLimits() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(1024, 5, 1);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire("10.0.0.1"));
+        }
+        assertFalse(limiter.tryAcquire("10.0.0.1"));
+    }
+    
+    @Test
+    void keysHaveSeparateBuckets() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(1024, 2, 1);
+        assertTrue(limiter.tryAcquire("10.0.0.1"));
+        assertTrue(limiter.tryAcquire("10.0.0.1"));
+        assertFalse(limiter.tryAcquire("10.0.0.1"));
+        assertTrue(limiter.tryAcquire("10.0.0.2"));
+    }
+    
+    @Test
+    void refillsOverTime() throws InterruptedException {
+        // 60,000 per minute is one token per millisecond
+        TokenBucketLimiter limiter = new TokenBucketLimiter(1024, 1, 60_000);
+        assertTrue(limiter.tryAcquire("10.0.0.1"));
+        Thread.sleep(20);
+        assertTrue(limiter.tryAcquire("10.0.0.1"));
+    }
+    
+    @Test
+    void rejectsUnsupportedConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketLimiter(1024, 0, 10));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketLimiter(1024, 10, 0));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketLimiter(1024, 10_000, 10));
+    }
+}
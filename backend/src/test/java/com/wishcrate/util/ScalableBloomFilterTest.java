@@ -0,0 +1,53 @@
+package com.wishcrate.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class ScalableBloomFilterTest {
+    
+    @Test
+    void staysOneStageWithinInitialCapacity() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(1_000, 0.01);
+        for (int i = 0; i < 900; i++) {
+            filter.add("user" + i);
+        }
+        assertEquals(1, filter.getStageCount());
+    }
+    
+    @Test
+    void growsAndKeepsEveryValueWhenCapacityIsExceeded() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(1_000, 0.01);
+        for (int i = 0; i < 20_000; i++) {
+            filter.add("user" + i);
+        }
+        assertTrue(filter.getStageCount() > 1);
+        for (int i = 0; i < 20_000; i++) {
+            assertTrue(filter.mightContain("user" + i));
+        }
+    }
+    
+    @Test
+    void compoundFalsePositiveRateStaysBelowConfiguredRate() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(1_000, 0.01);
+        for (int i = 0; i < 50_000; i++) {
+            filter.add("present" + i);
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("absent" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 1_500, "false positives: " + falsePositives);
+    }
+    
+    @Test
+    void addReturnsFalseForARepeatedValue() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(100, 0.01);
+        assertTrue(filter.add("a@example.com"));
+        assertFalse(filter.add("a@example.com"));
+    }
+}
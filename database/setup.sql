@@ -90,6 +90,12 @@ CREATE INDEX idx_order_date ON orders(order_date);
 CREATE INDEX idx_product_active ON products(active);
 CREATE INDEX idx_product_price ON products(price);
 
+-- Keyset pagination indexes (InnoDB appends the primary key, covering the id tie-breaker)
+CREATE INDEX idx_product_active_price ON products(active, price);
+CREATE INDEX idx_product_active_rating ON products(active, average_rating);
+CREATE INDEX idx_product_active_name ON products(active, name);
+CREATE INDEX idx_product_category_active ON products(category_id, active);
+
 -- Views for Analytics
 
 -- Daily Sales Summary